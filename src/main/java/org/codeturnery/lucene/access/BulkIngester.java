@@ -0,0 +1,245 @@
+package org.codeturnery.lucene.access;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.eclipse.jdt.annotation.Checks;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes documents on multiple worker threads, as an alternative to
+ * {@link WriteToolbox#accept(Document)} for large amounts of documents.
+ * <p>
+ * Documents passed to {@link #accept(Document)} are put into a bounded queue.
+ * Worker threads take documents from the queue in batches, build their facet
+ * fields and add them to the index via
+ * {@link org.apache.lucene.index.IndexWriter#addDocuments(Iterable)}. If the
+ * queue is full, {@link #accept(Document)} blocks until a worker took
+ * documents from it.
+ * <p>
+ * {@link #close()} waits until all queued documents were indexed, but does
+ * <strong>not</strong> commit them. Use {@link WriteToolbox#commit()} afterwards.
+ */
+public class BulkIngester implements Closeable {
+	private static final Logger LOGGER = Checks.requireNonNull(LoggerFactory.getLogger(BulkIngester.class));
+	/**
+	 * How long {@link #accept(Document)} and {@link #close()} wait for space in
+	 * the queue before checking if any worker is still alive to take from it.
+	 */
+	private static final long OFFER_TIMEOUT_MILLIS = 50;
+	/**
+	 * Queued once per worker by {@link #close()} after all documents. A worker
+	 * stops when it takes it from the queue.
+	 */
+	private static final Document POISON_PILL = new Document();
+
+	private final WriteExecuter writeExecuter;
+	private final BlockingQueue<Document> queue;
+	private final int batchSize;
+	private final List<Thread> workers;
+	private final AtomicLong indexedCount = new AtomicLong();
+	private final AtomicReference<@Nullable Throwable> failure = new AtomicReference<>();
+	private final long startNanos;
+	/**
+	 * Held shared while queueing documents and exclusively while closing, so no
+	 * document can be queued after the poison pills.
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private boolean closed;
+
+	/**
+	 * Starts the worker threads.
+	 *
+	 * @param writeExecuter The executer to write the documents with.
+	 * @param threadCount   The number of worker threads indexing documents.
+	 * @param queueCapacity The maximum number of documents waiting to be indexed.
+	 * @param batchSize     The maximum number of documents a worker indexes at
+	 *                      once.
+	 */
+	public BulkIngester(final WriteExecuter writeExecuter, final int threadCount, final int queueCapacity,
+			final int batchSize) {
+		if (threadCount < 1 || queueCapacity < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("Thread count, queue capacity and batch size must be positive.");
+		}
+		this.writeExecuter = writeExecuter;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = batchSize;
+		this.startNanos = System.nanoTime();
+		final var workers = new ArrayList<Thread>(threadCount);
+		for (int i = 0; i < threadCount; i++) {
+			final var worker = new Thread(this::work, "lucene-toolbox-bulk-ingester-" + i);
+			worker.setDaemon(true);
+			worker.start();
+			workers.add(worker);
+		}
+		this.workers = workers;
+	}
+
+	/**
+	 * Queues the given document for indexing, blocking while the queue is full.
+	 *
+	 * @throws IOException           If a worker failed to index documents or no
+	 *                               worker is left. No further documents will be
+	 *                               indexed in that case.
+	 * @throws IllegalStateException If this instance was already closed.
+	 */
+	public void accept(final Document document) throws IOException {
+		this.closeLock.readLock().lock();
+		try {
+			if (this.closed) {
+				throw new IllegalStateException("Bulk ingester was already closed.");
+			}
+			throwOnFailure();
+			// don't block forever while holding the lock if the queue is never drained
+			while (!this.queue.offer(document, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				throwOnFailure();
+				if (this.workers.stream().noneMatch(Thread::isAlive)) {
+					throw new IOException("No worker is left to index the queued documents.");
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ThreadInterruptedException(e);
+		} finally {
+			this.closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The number of documents waiting to be indexed.
+	 */
+	public int getQueueDepth() {
+		return this.queue.size();
+	}
+
+	/**
+	 * @return The number of documents indexed so far.
+	 */
+	public long getIndexedCount() {
+		return this.indexedCount.get();
+	}
+
+	/**
+	 * @return The average number of documents indexed per second since this
+	 *         instance was created.
+	 */
+	public double getDocumentsPerSecond() {
+		final long elapsedNanos = System.nanoTime() - this.startNanos;
+		return elapsedNanos == 0 ? 0 : this.indexedCount.get() * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Waits until all queued documents were indexed and stops the worker threads.
+	 *
+	 * @throws IOException If a worker failed to index documents or documents are
+	 *                     left in the queue.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.closeLock.writeLock().lock();
+		try {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+		} finally {
+			this.closeLock.writeLock().unlock();
+		}
+		try {
+			for (int i = 0; i < this.workers.size(); i++) {
+				while (!this.queue.offer(POISON_PILL, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (this.workers.stream().noneMatch(Thread::isAlive)) {
+						break;
+					}
+				}
+			}
+			for (final Thread worker : this.workers) {
+				worker.join();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ThreadInterruptedException(e);
+		}
+		LOGGER.debug("Bulk ingester indexed {} documents ({} per second).", Long.valueOf(getIndexedCount()),
+				Long.valueOf(Math.round(getDocumentsPerSecond())));
+		throwOnFailure();
+		// pills are left behind if a worker stopped early
+		this.queue.removeIf(document -> document == POISON_PILL);
+		if (!this.queue.isEmpty()) {
+			throw new IOException(this.queue.size() + " queued documents were not indexed.");
+		}
+	}
+
+	private void throwOnFailure() throws IOException {
+		final @Nullable Throwable failure = this.failure.get();
+		if (failure != null) {
+			throw new IOException("Bulk ingestion failed.", failure);
+		}
+	}
+
+	private void work() {
+		final var batch = new ArrayList<Document>(this.batchSize);
+		try {
+			while (true) {
+				final Document document = this.queue.take();
+				if (document == POISON_PILL) {
+					return;
+				}
+				batch.add(document);
+				this.queue.drainTo(batch, this.batchSize - 1);
+				// the pills are queued after all documents, so they can only end the batch
+				int pillCount = 0;
+				while (!batch.isEmpty() && batch.get(batch.size() - 1) == POISON_PILL) {
+					batch.remove(batch.size() - 1);
+					pillCount++;
+				}
+				// after a failure the queue is still drained to not block the callers
+				if (this.failure.get() == null && !batch.isEmpty()) {
+					index(batch);
+				}
+				batch.clear();
+				if (pillCount > 0) {
+					// hand the pills meant for the other workers back
+					for (int i = 1; i < pillCount; i++) {
+						this.queue.put(POISON_PILL);
+					}
+					return;
+				}
+			}
+		} catch (final InterruptedException e) {
+			this.failure.compareAndSet(null, e);
+		} catch (final Error e) {
+			this.failure.compareAndSet(null, e);
+			throw e;
+		}
+	}
+
+	private void index(final List<Document> batch) {
+		try {
+			this.writeExecuter.write((indexWriter, taxonomyWriter, facetsConfig) -> {
+				final var builtDocuments = new ArrayList<Document>(batch.size());
+				for (final Document document : batch) {
+					builtDocuments.add(facetsConfig.build(taxonomyWriter, document));
+				}
+				return Long.valueOf(indexWriter.addDocuments(builtDocuments));
+			});
+			this.indexedCount.addAndGet(batch.size());
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.error("Failed to index a batch of {} documents.", Integer.valueOf(batch.size()), e);
+			this.failure.compareAndSet(null, e);
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package org.codeturnery.lucene.access;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.eclipse.jdt.annotation.Checks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges commit requests of multiple callers into a single
+ * {@link WriteToolbox#commit()}.
+ * <p>
+ * A background thread waits for the first commit request, then waits for the
+ * configured window to collect further requests and finally executes a single
+ * commit for all of them. The {@link CompletableFuture} returned to each caller
+ * completes when the commit covering its request is durable.
+ * <p>
+ * Changes written after a commit request was made may or may not be included
+ * in the commit completing its future.
+ */
+public class CommitCoordinator implements Closeable {
+	private static final Logger LOGGER = Checks.requireNonNull(LoggerFactory.getLogger(CommitCoordinator.class));
+
+	private final WriteToolbox writeToolbox;
+	private final long windowNanos;
+	private final Thread committer;
+	private final Object lock = new Object();
+	private List<CompletableFuture<long[]>> pendingRequests = new ArrayList<>();
+	private boolean closed;
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong commitCount = new AtomicLong();
+	private final AtomicLong totalCommitNanos = new AtomicLong();
+	private volatile long lastCommitNanos;
+
+	/**
+	 * Starts the background thread.
+	 *
+	 * @param writeToolbox The toolbox to commit with.
+	 * @param window       The time to wait for further requests after the first
+	 *                     one arrived. A longer window results in fewer commits
+	 *                     but higher latency for each caller.
+	 */
+	public CommitCoordinator(final WriteToolbox writeToolbox, final Duration window) {
+		this.writeToolbox = writeToolbox;
+		this.windowNanos = window.toNanos();
+		this.committer = new Thread(this::run, "lucene-toolbox-commit-coordinator");
+		this.committer.setDaemon(true);
+		this.committer.start();
+	}
+
+	/**
+	 * Requests a commit of all changes written so far.
+	 *
+	 * @return A future completing with the return of {@link WriteToolbox#commit()}
+	 *         once the changes are committed, or completing exceptionally if the
+	 *         commit failed or this instance was already closed.
+	 */
+	public CompletableFuture<long[]> requestCommit() {
+		final var future = new CompletableFuture<long[]>();
+		synchronized (this.lock) {
+			if (this.closed) {
+				future.completeExceptionally(new IllegalStateException("Commit coordinator was already closed."));
+				return future;
+			}
+			this.pendingRequests.add(future);
+			this.lock.notifyAll();
+		}
+		this.requestCount.incrementAndGet();
+		return future;
+	}
+
+	/**
+	 * @return The number of commit requests received so far.
+	 */
+	public long getRequestCount() {
+		return this.requestCount.get();
+	}
+
+	/**
+	 * @return The number of commits executed so far. Lower than
+	 *         {@link #getRequestCount()} if requests were merged.
+	 */
+	public long getCommitCount() {
+		return this.commitCount.get();
+	}
+
+	/**
+	 * @return The time the most recent commit took, excluding the window.
+	 */
+	public Duration getLastCommitLatency() {
+		return Checks.requireNonNull(Duration.ofNanos(this.lastCommitNanos));
+	}
+
+	/**
+	 * @return The average time of all commits so far, excluding the window.
+	 */
+	public Duration getAverageCommitLatency() {
+		final long commitCount = this.commitCount.get();
+		return Checks.requireNonNull(
+				Duration.ofNanos(commitCount == 0 ? 0 : this.totalCommitNanos.get() / commitCount));
+	}
+
+	/**
+	 * Commits the pending requests and stops the background thread. Requests made
+	 * afterwards fail, as do requests made after the background thread failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this.lock) {
+			this.closed = true;
+			this.lock.notifyAll();
+		}
+		try {
+			this.committer.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ThreadInterruptedException(e);
+		}
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				synchronized (this.lock) {
+					while (this.pendingRequests.isEmpty() && !this.closed) {
+						this.lock.wait();
+					}
+					if (this.pendingRequests.isEmpty()) {
+						return;
+					}
+				}
+				if (this.windowNanos > 0 && !isClosed()) {
+					TimeUnit.NANOSECONDS.sleep(this.windowNanos);
+				}
+				final List<CompletableFuture<long[]>> requests;
+				synchronized (this.lock) {
+					requests = this.pendingRequests;
+					this.pendingRequests = new ArrayList<>();
+				}
+				commit(requests);
+			}
+		} catch (final InterruptedException e) {
+			LOGGER.warn("Commit coordinator was interrupted, failing pending commit requests.");
+			failPendingRequests(e);
+		} catch (final RuntimeException | Error e) {
+			LOGGER.error("Commit coordinator failed, failing pending commit requests.", e);
+			failPendingRequests(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes this instance, so no requests are accepted that would never be
+	 * committed, and fails the requests not committed yet.
+	 */
+	private void failPendingRequests(final Throwable cause) {
+		synchronized (this.lock) {
+			this.closed = true;
+			for (final CompletableFuture<long[]> request : this.pendingRequests) {
+				request.completeExceptionally(cause);
+			}
+			this.pendingRequests.clear();
+		}
+	}
+
+	private boolean isClosed() {
+		synchronized (this.lock) {
+			return this.closed;
+		}
+	}
+
+	private void commit(final List<CompletableFuture<long[]>> requests) {
+		LOGGER.trace("Committing for {} requests.", Integer.valueOf(requests.size()));
+		final long start = System.nanoTime();
+		try {
+			final long[] result = this.writeToolbox.commit();
+			for (final CompletableFuture<long[]> request : requests) {
+				request.complete(result);
+			}
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.error("Commit for {} requests failed.", Integer.valueOf(requests.size()), e);
+			for (final CompletableFuture<long[]> request : requests) {
+				request.completeExceptionally(e);
+			}
+		} catch (final Error e) {
+			// the committer thread stops, but the callers must not wait forever
+			for (final CompletableFuture<long[]> request : requests) {
+				request.completeExceptionally(e);
+			}
+			throw e;
+		} finally {
+			final long commitNanos = System.nanoTime() - start;
+			this.lastCommitNanos = commitNanos;
+			this.totalCommitNanos.addAndGet(commitNanos);
+			this.commitCount.incrementAndGet();
+		}
+	}
+}
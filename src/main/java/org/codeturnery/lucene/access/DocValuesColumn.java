@@ -0,0 +1,186 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.eclipse.jdt.annotation.Checks;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The doc values of a single field for the hits of a {@link ReadRequest}, see
+ * {@link ReadRequest#getDocValuesFieldsToLoad()}.
+ * <p>
+ * The values are stored in primitive arrays, the value at a specific index
+ * belongs to the hit at the same index in the {@link ReadResponse}. For
+ * multi-valued fields ({@link DocValuesType#SORTED_NUMERIC} and
+ * {@link DocValuesType#SORTED_SET}) only the smallest value of each hit is
+ * loaded.
+ */
+public class DocValuesColumn {
+	private final String field;
+	private final DocValuesType type;
+	private final int size;
+	private final FixedBitSet valuePresence;
+	private final long @Nullable [] numericValues;
+	private final @Nullable BytesRef @Nullable [] binaryValues;
+
+	/**
+	 * @param type {@link DocValuesType#NONE} if the field does not exist in the
+	 *             index, resulting in a column without values.
+	 */
+	DocValuesColumn(final String field, final DocValuesType type, final int size) {
+		this.field = field;
+		this.type = type;
+		this.size = size;
+		this.valuePresence = new FixedBitSet(size);
+		this.numericValues = isNumeric(type) ? new long[size] : null;
+		this.binaryValues = isBinary(type) ? new BytesRef[size] : null;
+	}
+
+	public String getField() {
+		return this.field;
+	}
+
+	/**
+	 * @return The doc values type of the field or {@link DocValuesType#NONE} if
+	 *         the field did not exist in the index.
+	 */
+	public DocValuesType getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return The number of hits, including the ones without value.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return True if the values can be retrieved via {@link #getLong(int)},
+	 *         false if they can be retrieved via {@link #getBytes(int)}.
+	 */
+	public boolean isNumeric() {
+		return isNumeric(this.type);
+	}
+
+	public boolean hasValue(final int index) {
+		return this.valuePresence.get(index);
+	}
+
+	/**
+	 * @return The value of the hit at the given index or 0 if it has none.
+	 * @throws IllegalStateException If the column is not {@link #isNumeric()
+	 *                               numeric}.
+	 */
+	public long getLong(final int index) {
+		final long[] numericValues = this.numericValues;
+		if (numericValues == null) {
+			throw new IllegalStateException("Field '" + this.field + "' is not numeric, but " + this.type + ".");
+		}
+		return numericValues[index];
+	}
+
+	/**
+	 * @return The value of the hit at the given index or <code>null</code> if it
+	 *         has none.
+	 * @throws IllegalStateException If the column is {@link #isNumeric()
+	 *                               numeric}.
+	 */
+	public @Nullable BytesRef getBytes(final int index) {
+		if (isNumeric()) {
+			throw new IllegalStateException("Field '" + this.field + "' is numeric.");
+		}
+		final @Nullable BytesRef[] binaryValues = this.binaryValues;
+		return binaryValues == null ? null : binaryValues[index];
+	}
+
+	void setLong(final int index, final long value) {
+		Checks.requireNonNull(this.numericValues)[index] = value;
+		this.valuePresence.set(index);
+	}
+
+	void setBytes(final int index, final BytesRef value) {
+		Checks.requireNonNull(this.binaryValues)[index] = value;
+		this.valuePresence.set(index);
+	}
+
+	/**
+	 * Creates a reader filling this column with the values of a single segment.
+	 * The documents passed to the returned reader must be in increasing order.
+	 */
+	LeafValueReader createLeafValueReader(final LeafReader leafReader) throws IOException {
+		switch (this.type) {
+		case NUMERIC: {
+			final NumericDocValues values = DocValues.getNumeric(leafReader, this.field);
+			return (doc, index) -> {
+				if (values.advanceExact(doc)) {
+					setLong(index, values.longValue());
+				}
+			};
+		}
+		case SORTED_NUMERIC: {
+			final SortedNumericDocValues values = DocValues.getSortedNumeric(leafReader, this.field);
+			return (doc, index) -> {
+				if (values.advanceExact(doc)) {
+					setLong(index, values.nextValue());
+				}
+			};
+		}
+		case BINARY: {
+			final BinaryDocValues values = DocValues.getBinary(leafReader, this.field);
+			return (doc, index) -> {
+				if (values.advanceExact(doc)) {
+					setBytes(index, Checks.requireNonNull(BytesRef.deepCopyOf(values.binaryValue())));
+				}
+			};
+		}
+		case SORTED: {
+			final SortedDocValues values = DocValues.getSorted(leafReader, this.field);
+			return (doc, index) -> {
+				if (values.advanceExact(doc)) {
+					setBytes(index, Checks.requireNonNull(BytesRef.deepCopyOf(values.lookupOrd(values.ordValue()))));
+				}
+			};
+		}
+		case SORTED_SET: {
+			final SortedSetDocValues values = DocValues.getSortedSet(leafReader, this.field);
+			return (doc, index) -> {
+				if (values.advanceExact(doc)) {
+					setBytes(index, Checks.requireNonNull(BytesRef.deepCopyOf(values.lookupOrd(values.nextOrd()))));
+				}
+			};
+		}
+		default:
+			return (doc, index) -> {
+				// the field does not exist, hence there are no values to load
+			};
+		}
+	}
+
+	private static boolean isNumeric(final DocValuesType type) {
+		return type == DocValuesType.NUMERIC || type == DocValuesType.SORTED_NUMERIC;
+	}
+
+	private static boolean isBinary(final DocValuesType type) {
+		return type == DocValuesType.BINARY || type == DocValuesType.SORTED || type == DocValuesType.SORTED_SET;
+	}
+
+	@FunctionalInterface
+	interface LeafValueReader {
+		/**
+		 * @param doc   The document ID within the segment.
+		 * @param index The index of the hit in the column.
+		 */
+		void read(int doc, int index) throws IOException;
+	}
+}
@@ -0,0 +1,263 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.taxonomy.TaxonomyFacets;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.ConjunctionUtils;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Caches the facet counts of queries per segment, see
+ * {@link ReadToolbox#setFacetCountCache(FacetCountCache)}.
+ * <p>
+ * Segments are immutable, only deletions and doc values updates result in a
+ * new segment reader. Hence after a refresh of the index reader the counts of
+ * unchanged segments can be reused and only new or changed segments need to be
+ * counted. The counts of all segments are summed afterwards.
+ * <p>
+ * Entries are keyed by the rewritten query and the cache key of the segment
+ * reader and removed when the segment reader is closed, e.g. after a merge.
+ * Least recently used entries are evicted once the maximum number of entries is
+ * reached.
+ * <p>
+ * The cached counts rely on the ordinals of the taxonomy to be stable, clear
+ * the cache if the taxonomy is ever replaced.
+ */
+public class FacetCountCache {
+	private final Map<Key, SegmentCounts> entries;
+	private final Set<IndexReader.CacheKey> observedReaders = Collections.newSetFromMap(new IdentityHashMap<>());
+	private long hitCount;
+	private long missCount;
+
+	/**
+	 * @param maxEntries The maximum number of segment counts to keep, i.e. the
+	 *                   number of distinct queries times the number of segments.
+	 */
+	public FacetCountCache(final int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Maximum number of entries must be positive, got: " + maxEntries);
+		}
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, SegmentCounts> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @return The number of segments whose counts were taken from the cache.
+	 */
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * @return The number of segments that were counted.
+	 */
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Counts the facets of the given query like
+	 * {@link org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts}, reusing
+	 * the counts of segments already counted for the same query.
+	 */
+	Facets count(final IndexSearcher searcher, final TaxonomyReader taxonomyReader, final FacetsConfig config,
+			final Query query) throws IOException {
+		final Query rewrittenQuery = searcher.rewrite(query);
+		final String indexFieldName = FacetsConfig.DEFAULT_INDEX_FIELD_NAME;
+		@Nullable Weight weight = null;
+		final var totalCounts = new int[taxonomyReader.getSize()];
+		for (final LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+			final IndexReader.@Nullable CacheHelper cacheHelper = leaf.reader().getReaderCacheHelper();
+			final @Nullable Key key = cacheHelper == null ? null
+					: new Key(cacheHelper.getKey(), rewrittenQuery, indexFieldName);
+			@Nullable SegmentCounts segmentCounts = key == null ? null : get(key);
+			if (segmentCounts == null) {
+				if (weight == null) {
+					weight = searcher.createWeight(rewrittenQuery, ScoreMode.COMPLETE_NO_SCORES, 1);
+				}
+				segmentCounts = countSegment(weight, leaf, indexFieldName, totalCounts.length);
+				if (key != null) {
+					put(key, segmentCounts, cacheHelper);
+				}
+			}
+			segmentCounts.addTo(totalCounts);
+		}
+		return new CachedTaxonomyFacetCounts(indexFieldName, taxonomyReader, config, totalCounts);
+	}
+
+	private synchronized @Nullable SegmentCounts get(final Key key) {
+		final @Nullable SegmentCounts segmentCounts = this.entries.get(key);
+		if (segmentCounts == null) {
+			this.missCount++;
+		} else {
+			this.hitCount++;
+		}
+		return segmentCounts;
+	}
+
+	private void put(final Key key, final SegmentCounts segmentCounts, final IndexReader.CacheHelper cacheHelper) {
+		final boolean observed;
+		synchronized (this) {
+			this.entries.put(key, segmentCounts);
+			observed = !this.observedReaders.add(key.readerKey);
+		}
+		if (!observed) {
+			cacheHelper.addClosedListener(this::evict);
+		}
+	}
+
+	private synchronized void evict(final IndexReader.CacheKey readerKey) {
+		this.observedReaders.remove(readerKey);
+		this.entries.keySet().removeIf(key -> key.readerKey == readerKey);
+	}
+
+	private static SegmentCounts countSegment(final Weight weight, final LeafReaderContext leaf,
+			final String indexFieldName, final int taxonomySize) throws IOException {
+		final Scorer scorer = weight.scorer(leaf);
+		if (scorer == null) {
+			return SegmentCounts.EMPTY;
+		}
+		final LeafReader leafReader = leaf.reader();
+		// empty if the segment has no facets in the field
+		final SortedNumericDocValues ordinals = DocValues.getSortedNumeric(leafReader, indexFieldName);
+		final Bits liveDocs = leafReader.getLiveDocs();
+		final var counts = new int[taxonomySize];
+		int distinctCount = 0;
+		final DocIdSetIterator iterator = ConjunctionUtils
+				.intersectIterators(Arrays.asList(scorer.iterator(), ordinals));
+		for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+			if (liveDocs != null && !liveDocs.get(doc)) {
+				continue;
+			}
+			final int valueCount = ordinals.docValueCount();
+			for (int i = 0; i < valueCount; i++) {
+				final int ordinal = (int) ordinals.nextValue();
+				if (counts[ordinal]++ == 0) {
+					distinctCount++;
+				}
+			}
+		}
+		return SegmentCounts.compact(counts, distinctCount);
+	}
+
+	/**
+	 * The non-zero counts of a single segment.
+	 */
+	private static final class SegmentCounts {
+		static final SegmentCounts EMPTY = new SegmentCounts(new int[0], new int[0]);
+
+		private final int[] ordinals;
+		private final int[] counts;
+
+		private SegmentCounts(final int[] ordinals, final int[] counts) {
+			this.ordinals = ordinals;
+			this.counts = counts;
+		}
+
+		static SegmentCounts compact(final int[] denseCounts, final int distinctCount) {
+			final var ordinals = new int[distinctCount];
+			final var counts = new int[distinctCount];
+			int index = 0;
+			for (int ordinal = 0; ordinal < denseCounts.length && index < distinctCount; ordinal++) {
+				if (denseCounts[ordinal] != 0) {
+					ordinals[index] = ordinal;
+					counts[index] = denseCounts[ordinal];
+					index++;
+				}
+			}
+			return new SegmentCounts(ordinals, counts);
+		}
+
+		void addTo(final int[] totalCounts) {
+			for (int i = 0; i < this.ordinals.length; i++) {
+				totalCounts[this.ordinals[i]] += this.counts[i];
+			}
+		}
+	}
+
+	private static final class Key {
+		private final IndexReader.CacheKey readerKey;
+		private final Query query;
+		private final String indexFieldName;
+		private final int hashCode;
+
+		Key(final IndexReader.CacheKey readerKey, final Query query, final String indexFieldName) {
+			this.readerKey = readerKey;
+			this.query = query;
+			this.indexFieldName = indexFieldName;
+			this.hashCode = Objects.hash(readerKey, query, indexFieldName);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(final @Nullable Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			final var other = (Key) object;
+			return this.readerKey == other.readerKey && this.query.equals(other.query)
+					&& this.indexFieldName.equals(other.indexFieldName);
+		}
+	}
+
+	/**
+	 * Facets backed by counts summed from the cached segment counts.
+	 */
+	private static final class CachedTaxonomyFacetCounts extends TaxonomyFacets {
+		CachedTaxonomyFacetCounts(final String indexFieldName, final TaxonomyReader taxonomyReader,
+				final FacetsConfig config, final int[] counts) throws IOException {
+			super(indexFieldName, taxonomyReader, config);
+			initializeValueCounters();
+			for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+				if (counts[ordinal] != 0) {
+					setCount(ordinal, counts[ordinal]);
+				}
+			}
+			// aggregates the counts of hierarchical dimensions, like FastTaxonomyFacetCounts
+			rollup();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.FacetsConfig.DimConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A {@link QueryCachingPolicy} that caches facet drill-down filters (as created
+ * by
+ * {@link org.codeturnery.lucene.query.QueryFactory#createDrillDownQuery(Query, Map, FacetsConfig)})
+ * after they were used a configurable number of times.
+ * <p>
+ * A query is considered a facet filter if it is a {@link TermQuery} on one of
+ * the index fields of the {@link FacetsConfig} or a {@link BooleanQuery}
+ * consisting of such queries only. All other queries are handled by a
+ * {@link UsageTrackingQueryCachingPolicy}, which would never cache single
+ * {@link TermQuery} instances.
+ */
+public class FacetFilterCachingPolicy implements QueryCachingPolicy {
+	/**
+	 * The number of distinct facet filters whose usage is tracked. Filters used
+	 * less recently than the others are forgotten first.
+	 */
+	private static final int TRACKED_FILTER_COUNT = 256;
+
+	private final QueryCachingPolicy fallbackPolicy = new UsageTrackingQueryCachingPolicy();
+	private final Set<String> facetIndexFields;
+	private final int minFrequencyToCache;
+	private final Map<Query, int[]> filterUsages = new LinkedHashMap<>(TRACKED_FILTER_COUNT, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Query, int[]> eldest) {
+			return size() > TRACKED_FILTER_COUNT;
+		}
+	};
+
+	/**
+	 * @param facetsConfig        The configuration to get the facet index fields
+	 *                            from. Dimensions added later to the configuration
+	 *                            will be ignored.
+	 * @param minFrequencyToCache The number of times a facet filter needs to be
+	 *                            used before it is cached.
+	 */
+	public FacetFilterCachingPolicy(final FacetsConfig facetsConfig, final int minFrequencyToCache) {
+		final Set<String> facetIndexFields = new HashSet<>();
+		facetIndexFields.add(FacetsConfig.DEFAULT_INDEX_FIELD_NAME);
+		for (final DimConfig dimConfig : facetsConfig.getDimConfigs().values()) {
+			facetIndexFields.add(dimConfig.indexFieldName);
+		}
+		this.facetIndexFields = facetIndexFields;
+		this.minFrequencyToCache = minFrequencyToCache;
+	}
+
+	@Override
+	public void onUse(final Query query) {
+		if (isFacetFilter(query)) {
+			synchronized (this.filterUsages) {
+				this.filterUsages.computeIfAbsent(query, key -> new int[1])[0]++;
+			}
+		} else {
+			this.fallbackPolicy.onUse(query);
+		}
+	}
+
+	@Override
+	public boolean shouldCache(final Query query) throws IOException {
+		if (isFacetFilter(query)) {
+			synchronized (this.filterUsages) {
+				final int @Nullable [] usage = this.filterUsages.get(query);
+				return usage != null && usage[0] >= this.minFrequencyToCache;
+			}
+		}
+		return this.fallbackPolicy.shouldCache(query);
+	}
+
+	private boolean isFacetFilter(final Query query) {
+		if (query instanceof TermQuery) {
+			return this.facetIndexFields.contains(((TermQuery) query).getTerm().field());
+		}
+		if (query instanceof ConstantScoreQuery) {
+			return isFacetFilter(((ConstantScoreQuery) query).getQuery());
+		}
+		if (query instanceof BooleanQuery) {
+			final var clauses = ((BooleanQuery) query).clauses();
+			if (clauses.isEmpty()) {
+				return false;
+			}
+			for (final BooleanClause clause : clauses) {
+				if (!isFacetFilter(clause.getQuery())) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+}
@@ -4,10 +4,13 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager.SearcherAndTaxonomy;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
 import org.apache.lucene.index.DirectoryReader;
@@ -17,6 +20,8 @@ import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.ReferenceManager.RefreshListener;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.IOUtils;
 import org.eclipse.jdt.annotation.Checks;
@@ -25,14 +30,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * TODO: allow TrackingIndexWriter-like features? See
- * <a href="http://www.lucenetutorial.com/lucene-nrt-hello-world.html">this</a>
- * but note that the class is nowhere found in Lucene 8. Maybe instead
- * {@link ControlledRealTimeReopenThread} or
- * {@link org.apache.lucene.search.ReferenceManager.RefreshListener} can be
- * used?
+ * Near-real-time searching of the write-backed reader can be automated via
+ * {@link #startNearRealTimeReopen(Analyzer, double, double)}. Afterwards the
+ * sequence numbers returned by {@link WriteToolbox#accept(org.apache.lucene.document.Document)}
+ * can be passed to {@link ReadExecuter#read(ReadExecuter.ReadFunction, long)}
+ * to wait until the written document is visible, instead of refreshing the
+ * reader manually after each write.
  * <p>
- * TODO: add {@link QueryCache} feature support?
+ * To use a {@link QueryCache} specific to this index instead of the JVM-global
+ * one, set an {@link IndexSearcherFactory} via
+ * {@link #setSearcherFactory(TaxonomySearcherFactory)}.
  */
 @SuppressWarnings({ "resource", "hiding" })
 public class IndexManager implements Closeable {
@@ -48,6 +55,10 @@ public class IndexManager implements Closeable {
 	private @Nullable DirectoryTaxonomyWriter taxonomyWriter;
 	private @Nullable SearcherTaxonomyManager searcherManager;
 	private @Nullable SearcherTaxonomyManager writeBackedSearcherManager;
+	private @Nullable ControlledRealTimeReopenThread<SearcherAndTaxonomy> reopenThread;
+	private TaxonomySearcherFactory searcherFactory = new TaxonomySearcherFactory();
+	private @Nullable Sort indexSort;
+	private final List<RefreshListener> refreshListeners = new ArrayList<>();
 
 	public IndexManager(final Path indexPath, final Path taxonomyPath, final FacetsConfig facetsConfig)
 			throws IOException {
@@ -78,12 +89,105 @@ public class IndexManager implements Closeable {
 		return new WriteExecuterImpl(indexWriter, taxoWriter, this.facetsConfig);
 	}
 
+	/**
+	 * @return An executer reading the committed state of the index. It does not
+	 *         support {@link ReadExecuter#read(ReadExecuter.ReadFunction, long)},
+	 *         use {@link #getWriteBackedReaderExecuter(Analyzer)} to read your own
+	 *         writes.
+	 */
 	public ReadExecuter getReadExecuter() throws IOException {
 		return new ReadExecuterImpl(getSearcherManager(), this.facetsConfig);
 	}
 
 	public ReadExecuter getWriteBackedReaderExecuter(final Analyzer analyzer) throws IOException {
-		return new ReadExecuterImpl(getWriteBackedSearcherManager(analyzer), this.facetsConfig);
+		return new ReadExecuterImpl(getWriteBackedSearcherManager(analyzer), this.facetsConfig, this.reopenThread);
+	}
+
+	/**
+	 * Sets the factory used to create the {@link org.apache.lucene.search.IndexSearcher}
+	 * instances provided to the {@link ReadExecuter} functions.
+	 *
+	 * @param searcherFactory E.g. an {@link IndexSearcherFactory} or a
+	 *                        {@link WarmingSearcherFactory}.
+	 * @throws IllegalStateException If a {@link ReadExecuter} was already
+	 *                               retrieved from this instance.
+	 */
+	public void setSearcherFactory(final TaxonomySearcherFactory searcherFactory) {
+		if (this.searcherManager != null || this.writeBackedSearcherManager != null) {
+			throw new IllegalStateException("Searcher factory must be set before the first reader is opened.");
+		}
+		this.searcherFactory = searcherFactory;
+	}
+
+	/**
+	 * Sets the order in which documents are stored in each segment, see
+	 * {@link IndexWriterConfig#setIndexSort(Sort)}. The sort may only use doc
+	 * values fields.
+	 * <p>
+	 * Requests sorted by the same fields (see {@link ReadRequest#getSort()}) stop
+	 * collecting in each segment once enough hits were found, e.g. listings of
+	 * the newest documents. An existing index must have been written with the
+	 * same sort.
+	 *
+	 * @throws IllegalStateException If the index writer was already opened.
+	 */
+	public void setIndexSort(final Sort indexSort) {
+		if (this.indexWriter != null) {
+			throw new IllegalStateException("Index sort must be set before the index writer is opened.");
+		}
+		this.indexSort = indexSort;
+	}
+
+	/**
+	 * Adds a listener notified whenever the reader of a {@link ReadExecuter}
+	 * retrieved from this instance is refreshed, e.g. a {@link ResultCache}.
+	 * Applies to readers opened before and after calling this method.
+	 */
+	public void addRefreshListener(final RefreshListener listener) {
+		this.refreshListeners.add(listener);
+		if (this.searcherManager != null) {
+			this.searcherManager.addListener(listener);
+		}
+		if (this.writeBackedSearcherManager != null) {
+			this.writeBackedSearcherManager.addListener(listener);
+		}
+	}
+
+	/**
+	 * Starts a background thread refreshing the write-backed reader (see
+	 * {@link #getWriteBackedReaderExecuter(Analyzer)}) periodically.
+	 * <p>
+	 * As long as no one waits for a specific generation the reader is refreshed
+	 * every <code>targetMaxStaleSec</code> seconds. When a caller waits for a
+	 * generation via {@link ReadExecuter#read(ReadExecuter.ReadFunction, long)},
+	 * the refresh is done sooner, but not more often than every
+	 * <code>targetMinStaleSec</code> seconds.
+	 * <p>
+	 * Only {@link ReadExecuter} instances retrieved <strong>after</strong> calling
+	 * this method will wait on the thread. The thread is stopped when this instance
+	 * is closed.
+	 *
+	 * @param analyzer          The analyzer to use if the index writer was not
+	 *                          opened yet.
+	 * @param targetMaxStaleSec The maximum time in seconds until changes become
+	 *                          visible if no one is waiting for them.
+	 * @param targetMinStaleSec The minimum time in seconds between two refreshes
+	 *                          if someone is waiting for a specific generation.
+	 * @throws IllegalStateException If the thread was already started.
+	 */
+	public void startNearRealTimeReopen(final Analyzer analyzer, final double targetMaxStaleSec,
+			final double targetMinStaleSec) throws IOException {
+		if (this.reopenThread != null) {
+			throw new IllegalStateException("Near-real-time reopen thread was already started.");
+		}
+		final var searcherManager = getWriteBackedSearcherManager(analyzer);
+		final var reopenThread = new ControlledRealTimeReopenThread<>(getIndexWriter(analyzer), searcherManager,
+				targetMaxStaleSec, targetMinStaleSec);
+		reopenThread.setName("lucene-toolbox-nrt-reopen");
+		reopenThread.setDaemon(true);
+		reopenThread.start();
+		this.reopenThread = reopenThread;
+		LOGGER.debug("Started near-real-time reopen thread.");
 	}
 
 	public void maybeRefreshAll() throws IOException {
@@ -97,8 +201,10 @@ public class IndexManager implements Closeable {
 
 	@Override
 	public void close() throws IOException {
-		IOUtils.close(this.searcherManager, this.writeBackedSearcherManager, this.taxonomyWriter, this.indexWriter,
-				this.taxonomyReader, this.indexReader, this.taxonomyDirectory, this.indexDirectory);
+		// stop the reopen thread first, it refreshes the write-backed searcher manager
+		IOUtils.close(this.reopenThread, this.searcherManager, this.writeBackedSearcherManager,
+				this.taxonomyWriter, this.indexWriter, this.taxonomyReader, this.indexReader,
+				this.taxonomyDirectory, this.indexDirectory);
 	}
 
 	private SearcherTaxonomyManager getWriteBackedSearcherManager(final Analyzer analyzer) throws IOException {
@@ -106,7 +212,10 @@ public class IndexManager implements Closeable {
 			// first open the index writer and only then the taxonomy writer
 			final var indexWriter = getIndexWriter(analyzer);
 			final var taxoWriter = getTaxonomyWriter();
-			this.writeBackedSearcherManager = new SearcherTaxonomyManager(indexWriter, null, taxoWriter);
+			final var writeBackedSearcherManager = new WarmingSearcherTaxonomyManager(indexWriter,
+					this.searcherFactory, taxoWriter);
+			this.refreshListeners.forEach(writeBackedSearcherManager::addListener);
+			this.writeBackedSearcherManager = writeBackedSearcherManager;
 		}
 		return Checks.requireNonNull(this.writeBackedSearcherManager);
 	}
@@ -116,7 +225,10 @@ public class IndexManager implements Closeable {
 			// first open the index reader and only then the taxonomy reader
 			final var indexReader = getIndexReader();
 			final var taxonomyReader = getTaxonomyReader();
-			this.searcherManager = new SearcherTaxonomyManager(indexReader, taxonomyReader, null);
+			final var searcherManager = new WarmingSearcherTaxonomyManager(indexReader, taxonomyReader,
+					this.searcherFactory);
+			this.refreshListeners.forEach(searcherManager::addListener);
+			this.searcherManager = searcherManager;
 		}
 		return Checks.requireNonNull(this.searcherManager);
 	}
@@ -147,6 +259,9 @@ public class IndexManager implements Closeable {
 			final var indexWriterConfig = new IndexWriterConfig(analyzer);
 			indexWriterConfig.setOpenMode(OpenMode.CREATE_OR_APPEND);
 			indexWriterConfig.setRAMBufferSizeMB(this.ramBufferSizeMb);
+			if (this.indexSort != null) {
+				indexWriterConfig.setIndexSort(this.indexSort);
+			}
 			this.indexWriter = new IndexWriter(this.indexDirectory, indexWriterConfig);
 		}
 		return Checks.requireNonNull(this.indexWriter);
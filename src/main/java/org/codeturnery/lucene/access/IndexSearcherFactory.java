@@ -0,0 +1,131 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.SearcherFactory;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A {@link SearcherFactory} that can be configured per {@link IndexManager}
+ * (see {@link IndexManager#setSearcherFactory(TaxonomySearcherFactory)}), instead of
+ * relying on the JVM-global defaults of {@link IndexSearcher}.
+ * <p>
+ * Configure the instance before the first searcher is created. Changes
+ * afterwards only affect searchers created by later refreshes.
+ * <p>
+ * If an {@link Executor} is set via {@link #setExecutor(Executor)} the
+ * segments of the index are split into slices, which are searched concurrently
+ * when a {@link org.apache.lucene.search.CollectorManager} is used for the
+ * search, as done by the {@link ReadToolbox}.
+ */
+public class IndexSearcherFactory extends TaxonomySearcherFactory {
+	private @Nullable LRUQueryCache queryCache;
+	private @Nullable QueryCachingPolicy queryCachingPolicy;
+	private @Nullable Executor executor;
+	private int maxDocsPerSlice = -1;
+	private int maxSegmentsPerSlice = -1;
+
+	/**
+	 * Sets the cache to be used by all searchers created by this instance.
+	 * <p>
+	 * The size of the cache can be limited via the parameters of
+	 * {@link LRUQueryCache#LRUQueryCache(int, long)} (maximum number of cached
+	 * queries and maximum RAM usage). To cache facet drill-down filters you may
+	 * want to use a {@link FacetFilterCachingPolicy}.
+	 *
+	 * @param queryCache         The cache to use.
+	 * @param queryCachingPolicy Decides which queries are cached.
+	 */
+	public void setQueryCache(final LRUQueryCache queryCache, final QueryCachingPolicy queryCachingPolicy) {
+		this.queryCache = queryCache;
+		this.queryCachingPolicy = queryCachingPolicy;
+	}
+
+	/**
+	 * Sets the executor used to search the slices of an index concurrently.
+	 * <p>
+	 * The executor will <strong>not</strong> be shut down by this instance. Note
+	 * that the calling thread may be blocked until all slices of a search were
+	 * processed, so using an executor with a bounded thread pool that is also used
+	 * to issue searches may result in a deadlock.
+	 *
+	 * @param executor E.g. a {@link java.util.concurrent.ForkJoinPool} or a
+	 *                 thread pool with the size of the available processors.
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Changes how the segments of an index are grouped into slices that are
+	 * searched concurrently. Without calling this method the defaults of
+	 * {@link IndexSearcher} are used.
+	 * <p>
+	 * Only relevant if an executor was set via {@link #setExecutor(Executor)}.
+	 *
+	 * @param maxDocsPerSlice     The number of documents in a slice after which no
+	 *                            more segments are added to it.
+	 * @param maxSegmentsPerSlice The maximum number of segments in a slice.
+	 */
+	public void setSlicing(final int maxDocsPerSlice, final int maxSegmentsPerSlice) {
+		if (maxDocsPerSlice < 1 || maxSegmentsPerSlice < 1) {
+			throw new IllegalArgumentException("Slice limits must be positive, got " + maxDocsPerSlice + " and "
+					+ maxSegmentsPerSlice + ".");
+		}
+		this.maxDocsPerSlice = maxDocsPerSlice;
+		this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+	}
+
+	/**
+	 * @return The current counters of the query cache or an empty {@link Optional}
+	 *         if none was set via
+	 *         {@link #setQueryCache(LRUQueryCache, QueryCachingPolicy)}.
+	 */
+	public Optional<QueryCacheStatistics> getQueryCacheStatistics() {
+		final @Nullable LRUQueryCache queryCache = this.queryCache;
+		return queryCache == null ? Optional.empty() : Optional.of(new QueryCacheStatistics(queryCache));
+	}
+
+	@Override
+	public IndexSearcher newSearcher(final IndexReader reader, final @Nullable IndexReader previousReader)
+			throws IOException {
+		final IndexSearcher searcher = this.maxDocsPerSlice < 0 ? new IndexSearcher(reader, this.executor)
+				: new SlicingIndexSearcher(reader, this.executor, this.maxDocsPerSlice, this.maxSegmentsPerSlice);
+		final @Nullable LRUQueryCache queryCache = this.queryCache;
+		final @Nullable QueryCachingPolicy queryCachingPolicy = this.queryCachingPolicy;
+		if (queryCache != null && queryCachingPolicy != null) {
+			searcher.setQueryCache(queryCache);
+			searcher.setQueryCachingPolicy(queryCachingPolicy);
+		}
+		return searcher;
+	}
+
+	/**
+	 * Uses custom limits when grouping the segments into slices.
+	 */
+	private static class SlicingIndexSearcher extends IndexSearcher {
+		private final int maxDocsPerSlice;
+		private final int maxSegmentsPerSlice;
+
+		SlicingIndexSearcher(final IndexReader reader, final @Nullable Executor executor, final int maxDocsPerSlice,
+				final int maxSegmentsPerSlice) {
+			super(reader, executor);
+			this.maxDocsPerSlice = maxDocsPerSlice;
+			this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+		}
+
+		@Override
+		protected LeafSlice[] slices(final List<LeafReaderContext> leaves) {
+			// slices are computed lazily, hence the fields are already initialized
+			return slices(leaves, this.maxDocsPerSlice, this.maxSegmentsPerSlice);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package org.codeturnery.lucene.access;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Weight;
+import org.eclipse.jdt.annotation.Checks;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Explanations of the hits of a {@link ReadRequest}, computed only when
+ * accessed. See {@link ReadRequest#getLazyExplanation()}.
+ * <p>
+ * All explanations are computed from a single {@link Weight} created for the
+ * request, instead of creating a new one for each hit as
+ * {@link org.apache.lucene.search.IndexSearcher#explain(org.apache.lucene.search.Query, int)}
+ * does. Computed explanations are kept and returned on later accesses.
+ * <p>
+ * The index reader the hits were found in is kept open until this instance is
+ * closed, hence it <strong>must</strong> be closed once the explanations are no
+ * longer needed.
+ */
+public class LazyExplanations implements Closeable {
+	private final IndexReader indexReader;
+	private final Weight weight;
+	private final ScoreDoc[] scoreDocs;
+	private final @Nullable Explanation[] explanations;
+	private boolean closed;
+
+	/**
+	 * @param count The number of hits at the beginning of the given array to
+	 *              provide explanations for.
+	 */
+	LazyExplanations(final IndexReader indexReader, final Weight weight, final ScoreDoc[] scoreDocs,
+			final int count) {
+		indexReader.incRef();
+		this.indexReader = indexReader;
+		this.weight = weight;
+		this.scoreDocs = scoreDocs;
+		this.explanations = new Explanation[count];
+	}
+
+	/**
+	 * @return The number of hits explanations can be retrieved for.
+	 */
+	public int size() {
+		return this.explanations.length;
+	}
+
+	/**
+	 * @param index The rank of the hit in the {@link ReadResponse}.
+	 * @return The explanation of the hit, computed if not done already.
+	 */
+	public synchronized Explanation get(final int index) throws IOException {
+		final @Nullable Explanation explanation = this.explanations[index];
+		if (explanation != null) {
+			return explanation;
+		}
+		ensureOpen();
+		final int docId = this.scoreDocs[index].doc;
+		final List<LeafReaderContext> leaves = this.indexReader.leaves();
+		return explain(Checks.requireNonNull(leaves.get(ReaderUtil.subIndex(docId, leaves))), docId, index);
+	}
+
+	/**
+	 * Computes the explanations not computed yet, grouped by segment and in
+	 * document ID order. Stops once the given time budget is used up; remaining
+	 * explanations are still computed on access via {@link #get(int)}.
+	 *
+	 * @return The number of explanations computed by this call.
+	 */
+	public synchronized int computeAll(final Duration timeBudget) throws IOException {
+		ensureOpen();
+		final long deadline = System.nanoTime() + timeBudget.toNanos();
+		// document ID in the upper and rank in the lower 32 bits, to sort without boxing
+		final var pendingHits = new long[this.explanations.length];
+		int pendingCount = 0;
+		for (int i = 0; i < this.explanations.length; i++) {
+			if (this.explanations[i] == null) {
+				pendingHits[pendingCount++] = ((long) this.scoreDocs[i].doc << Integer.SIZE) | i;
+			}
+		}
+		Arrays.sort(pendingHits, 0, pendingCount);
+
+		final List<LeafReaderContext> leaves = this.indexReader.leaves();
+		@Nullable LeafReaderContext leaf = null;
+		int computedCount = 0;
+		for (int i = 0; i < pendingCount; i++) {
+			if (System.nanoTime() - deadline > 0) {
+				break;
+			}
+			final int docId = (int) (pendingHits[i] >>> Integer.SIZE);
+			if (leaf == null || docId >= leaf.docBase + leaf.reader().maxDoc()) {
+				leaf = Checks.requireNonNull(leaves.get(ReaderUtil.subIndex(docId, leaves)));
+			}
+			explain(leaf, docId, (int) pendingHits[i]);
+			computedCount++;
+		}
+		return computedCount;
+	}
+
+	/**
+	 * Releases the index reader. Explanations computed so far can still be
+	 * retrieved afterwards.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!this.closed) {
+			this.closed = true;
+			this.indexReader.decRef();
+		}
+	}
+
+	private Explanation explain(final LeafReaderContext leaf, final int docId, final int index) throws IOException {
+		final Explanation explanation = this.weight.explain(leaf, docId - leaf.docBase);
+		this.explanations[index] = explanation;
+		return explanation;
+	}
+
+	private void ensureOpen() {
+		if (this.closed) {
+			throw new IllegalStateException("Lazy explanations were already closed.");
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.LabelAndValue;
+import org.eclipse.jdt.annotation.Checks;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Merges the counts of multiple {@link Facets} instances by their labels.
+ * <p>
+ * Needed for facets loaded from different taxonomies (e.g. one per shard of a
+ * {@link ShardedIndexManager}), as their ordinals can not be compared. To get
+ * correct top children all children of each instance are loaded and merged, so
+ * this is more expensive than loading the top children of a single instance.
+ */
+class MergedFacets extends Facets {
+	private final List<Facets> facetsList;
+
+	MergedFacets(final List<Facets> facetsList) {
+		this.facetsList = facetsList;
+	}
+
+	/**
+	 * Keeps the labels in the order they were first found in, e.g. the defined
+	 * order of the ranges of a {@link RangeFacet}.
+	 */
+	@Override
+	public @Nullable FacetResult getAllChildren(final String dim, final String... path) throws IOException {
+		return merge(dim, path, Integer.MAX_VALUE, false);
+	}
+
+	@Override
+	public @Nullable FacetResult getTopChildren(final int topN, final String dim, final String... path)
+			throws IOException {
+		validateTopN(topN);
+		return merge(dim, path, topN, true);
+	}
+
+	/**
+	 * @return The sum of the values of all instances, <code>-1</code> if the
+	 *         label was found in none of them.
+	 */
+	@Override
+	public Number getSpecificValue(final String dim, final String... path) throws IOException {
+		int sum = -1;
+		for (final Facets facets : this.facetsList) {
+			final int value = facets.getSpecificValue(dim, path).intValue();
+			if (value >= 0) {
+				sum = Math.max(sum, 0) + value;
+			}
+		}
+		return Integer.valueOf(sum);
+	}
+
+	@Override
+	public List<FacetResult> getAllDims(final int topN) throws IOException {
+		validateTopN(topN);
+		final Set<String> dims = new LinkedHashSet<>();
+		for (final Facets facets : this.facetsList) {
+			for (final FacetResult facetResult : facets.getAllDims(1)) {
+				dims.add(facetResult.dim);
+			}
+		}
+		final var results = new ArrayList<FacetResult>(dims.size());
+		for (final String dim : dims) {
+			final @Nullable FacetResult facetResult = merge(Checks.requireNonNull(dim), new String[0], topN, true);
+			if (facetResult != null) {
+				results.add(facetResult);
+			}
+		}
+		// same order as used by Lucene
+		results.sort(Comparator.comparing((final FacetResult result) -> Integer.valueOf(result.value.intValue()))
+				.reversed().thenComparing(result -> result.dim));
+		return results;
+	}
+
+	/**
+	 * @param sort True to order the labels by their merged value, otherwise they
+	 *             are kept in the order they were first found in.
+	 */
+	private @Nullable FacetResult merge(final String dim, final String[] path, final int topN, final boolean sort)
+			throws IOException {
+		final Map<String, int[]> valuesAndCounts = new LinkedHashMap<>();
+		boolean found = false;
+		boolean valueKnown = true;
+		int value = 0;
+		for (final Facets facets : this.facetsList) {
+			final @Nullable FacetResult facetResult = facets.getAllChildren(dim, path);
+			if (facetResult == null) {
+				continue;
+			}
+			found = true;
+			// negative values mean the value is unknown, e.g. for multi valued dimensions
+			final int shardValue = facetResult.value.intValue();
+			if (shardValue < 0) {
+				valueKnown = false;
+			} else {
+				value += shardValue;
+			}
+			for (final LabelAndValue labelAndValue : facetResult.labelValues) {
+				final int[] valueAndCount = valuesAndCounts.computeIfAbsent(labelAndValue.label, label -> new int[2]);
+				valueAndCount[0] += labelAndValue.value.intValue();
+				valueAndCount[1] += labelAndValue.count;
+			}
+		}
+		if (!found) {
+			return null;
+		}
+
+		final var entries = new ArrayList<>(valuesAndCounts.entrySet());
+		if (sort) {
+			entries.sort(Comparator
+					.comparing((final Entry<String, int[]> entry) -> Integer.valueOf(entry.getValue()[0]))
+					.reversed().thenComparing(Entry::getKey));
+		}
+		final int labelCount = Math.min(topN, entries.size());
+		final var labelValues = new LabelAndValue[labelCount];
+		for (int i = 0; i < labelCount; i++) {
+			final Entry<String, int[]> entry = entries.get(i);
+			final int[] valueAndCount = entry.getValue();
+			labelValues[i] = new LabelAndValue(entry.getKey(), Integer.valueOf(valueAndCount[0]), valueAndCount[1]);
+		}
+		return new FacetResult(dim, Arrays.copyOf(path, path.length), Integer.valueOf(valueKnown ? value : -1),
+				labelValues, entries.size());
+	}
+}
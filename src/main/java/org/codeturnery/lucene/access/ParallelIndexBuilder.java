@@ -0,0 +1,176 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.taxonomy.TaxonomyMergeUtils;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter.MemoryOrdinalMap;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.eclipse.jdt.annotation.Checks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds an index from multiple partitions of documents in parallel, as an
+ * alternative to indexing all documents through a single {@link WriteExecuter}
+ * when rebuilding an index from scratch.
+ * <p>
+ * Each partition is indexed into its own temporary index and taxonomy.
+ * Afterwards the temporary indices are added to the target index one after
+ * another via {@link TaxonomyMergeUtils}, which adds the categories of each
+ * temporary taxonomy to the target taxonomy and remaps the facet ordinals of
+ * the documents accordingly. The temporary directories are deleted at the end.
+ * <p>
+ * The changes in the target index are <strong>not</strong> committed. Use
+ * {@link WriteToolbox#commit()} afterwards.
+ */
+public class ParallelIndexBuilder {
+	private static final Logger LOGGER = Checks.requireNonNull(LoggerFactory.getLogger(ParallelIndexBuilder.class));
+
+	private final Path workingPath;
+	private final Analyzer analyzer;
+	private final FacetsConfig facetsConfig;
+	private final Executor executor;
+	private final double ramBufferSizeMb;
+
+	public ParallelIndexBuilder(final Path workingPath, final Analyzer analyzer, final FacetsConfig facetsConfig,
+			final Executor executor) {
+		this(workingPath, analyzer, facetsConfig, executor, IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB);
+	}
+
+	/**
+	 * @param workingPath     The directory to create the temporary indices in.
+	 * @param analyzer        The analyzer to index all partitions with.
+	 * @param facetsConfig    Must be the configuration of the target index.
+	 * @param executor        The executor to index the partitions on. Its
+	 *                        parallelism limits the number of partitions indexed
+	 *                        concurrently.
+	 * @param ramBufferSizeMb The RAM buffer size of each temporary index writer.
+	 */
+	public ParallelIndexBuilder(final Path workingPath, final Analyzer analyzer, final FacetsConfig facetsConfig,
+			final Executor executor, final double ramBufferSizeMb) {
+		this.workingPath = workingPath;
+		this.analyzer = analyzer;
+		this.facetsConfig = facetsConfig;
+		this.executor = executor;
+		this.ramBufferSizeMb = ramBufferSizeMb;
+	}
+
+	/**
+	 * Indexes the given partitions in parallel and adds the result to the index
+	 * of the given executer.
+	 *
+	 * @param partitions The documents to index, each partition is indexed by a
+	 *                   single task.
+	 * @param target     The executer to write into. Its taxonomy writer must be
+	 *                   a {@link DirectoryTaxonomyWriter}.
+	 * @return The number of documents added to the target index.
+	 */
+	public long build(final List<? extends Iterable<Document>> partitions, final WriteExecuter target)
+			throws IOException {
+		Files.createDirectories(this.workingPath);
+		final Path buildPath = Files.createTempDirectory(this.workingPath, "partitions");
+		try {
+			final List<Path> partitionPaths = indexPartitions(partitions, buildPath);
+			final long startNanos = System.nanoTime();
+			final Long documentCount = target.write((indexWriter, taxonomyWriter, facetsConfig) -> {
+				if (!(taxonomyWriter instanceof DirectoryTaxonomyWriter)) {
+					throw new IllegalArgumentException("Target taxonomy writer must be a DirectoryTaxonomyWriter.");
+				}
+				final long before = indexWriter.getDocStats().numDocs;
+				for (final Path partitionPath : partitionPaths) {
+					try (final var indexDirectory = FSDirectory.open(partitionPath.resolve("index"));
+							final var taxonomyDirectory = FSDirectory.open(partitionPath.resolve("taxonomy"));) {
+						TaxonomyMergeUtils.merge(indexDirectory, taxonomyDirectory, new MemoryOrdinalMap(), indexWriter,
+								(DirectoryTaxonomyWriter) taxonomyWriter, facetsConfig);
+					}
+				}
+				return Long.valueOf(indexWriter.getDocStats().numDocs - before);
+			});
+			LOGGER.debug("Merged {} partitions with {} documents in {} ms.", Integer.valueOf(partitionPaths.size()),
+					documentCount, Long.valueOf((System.nanoTime() - startNanos) / 1_000_000));
+			return documentCount.longValue();
+		} finally {
+			IOUtils.rm(buildPath);
+		}
+	}
+
+	private List<Path> indexPartitions(final List<? extends Iterable<Document>> partitions, final Path buildPath)
+			throws IOException {
+		final int partitionCount = partitions.size();
+		final var futures = new ArrayList<CompletableFuture<Path>>(partitionCount);
+		for (int i = 0; i < partitionCount; i++) {
+			final Path partitionPath = Checks.requireNonNull(buildPath.resolve("partition-" + i));
+			final Iterable<Document> partition = Checks.requireNonNull(partitions.get(i));
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					indexPartition(partition, partitionPath);
+					return partitionPath;
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, this.executor));
+		}
+
+		final var partitionPaths = new ArrayList<Path>(partitionCount);
+		try {
+			for (final CompletableFuture<Path> future : futures) {
+				partitionPaths.add(future.join());
+			}
+		} catch (final CompletionException e) {
+			// let the remaining tasks finish before their directories are deleted
+			for (final CompletableFuture<Path> future : futures) {
+				try {
+					future.join();
+				} catch (final CompletionException ignored) {
+					// reported via the first failure
+				}
+			}
+			final Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+		return partitionPaths;
+	}
+
+	private void indexPartition(final Iterable<Document> partition, final Path partitionPath) throws IOException {
+		final var indexWriterConfig = new IndexWriterConfig(this.analyzer);
+		indexWriterConfig.setOpenMode(OpenMode.CREATE);
+		indexWriterConfig.setRAMBufferSizeMB(this.ramBufferSizeMb);
+		try (final var indexDirectory = FSDirectory.open(partitionPath.resolve("index"));
+				final var taxonomyDirectory = FSDirectory.open(partitionPath.resolve("taxonomy"));
+				final var indexWriter = new IndexWriter(indexDirectory, indexWriterConfig);
+				// closed before the index writer, as resources are closed in reverse order
+				final var taxonomyWriter = new DirectoryTaxonomyWriter(taxonomyDirectory, OpenMode.CREATE);) {
+			for (final Document document : partition) {
+				indexWriter.addDocument(this.facetsConfig.build(taxonomyWriter, document));
+			}
+			taxonomyWriter.commit();
+			indexWriter.commit();
+		}
+		LOGGER.trace("Indexed partition into {}.", partitionPath);
+	}
+}
@@ -1,11 +1,14 @@
 package org.codeturnery.lucene.access;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
 import org.eclipse.jdt.annotation.Checks;
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -17,10 +20,17 @@ public class PojoReadRequest implements ReadRequest {
 	private @Nullable Query query;
 	private int maxDocumentCount;
 	private Set<String> documentFieldsToLoad = Collections.emptySet();
+	private Set<String> docValuesFieldsToLoad = Collections.emptySet();
 	private @Nullable ScoreDoc startDocument;
 	private boolean scoreInclusion;
 	private int maxHitCount;
+	private int totalHitsThreshold = DEFAULT_TOTAL_HITS_THRESHOLD;
 	private int maxExplanationCount;
+	private boolean lazyExplanation;
+	private Sort sort = Sort.RELEVANCE;
+	private long requiredGeneration = -1;
+	private @Nullable QueryBudget queryBudget;
+	private List<RangeFacet> rangeFacets = Collections.emptyList();
 
 	@Override
 	public Query getQuery() {
@@ -37,6 +47,11 @@ public class PojoReadRequest implements ReadRequest {
 		return this.documentFieldsToLoad;
 	}
 
+	@Override
+	public Set<String> getDocValuesFieldsToLoad() {
+		return this.docValuesFieldsToLoad;
+	}
+
 	@Override
 	public Optional<ScoreDoc> getAfterDocument() {
 		return Optional.ofNullable(this.startDocument);
@@ -52,6 +67,36 @@ public class PojoReadRequest implements ReadRequest {
 		return this.maxExplanationCount;
 	}
 
+	@Override
+	public boolean getLazyExplanation() {
+		return this.lazyExplanation;
+	}
+
+	@Override
+	public int getTotalHitsThreshold() {
+		return this.totalHitsThreshold;
+	}
+
+	@Override
+	public Sort getSort() {
+		return this.sort;
+	}
+
+	@Override
+	public List<RangeFacet> getRangeFacets() {
+		return this.rangeFacets;
+	}
+
+	@Override
+	public Optional<QueryBudget> getQueryBudget() {
+		return Optional.ofNullable(this.queryBudget);
+	}
+
+	@Override
+	public OptionalLong getRequiredGeneration() {
+		return this.requiredGeneration < 0 ? OptionalLong.empty() : OptionalLong.of(this.requiredGeneration);
+	}
+
 	public void setQuery(Query query) {
 		this.query = query;
 	}
@@ -64,6 +109,10 @@ public class PojoReadRequest implements ReadRequest {
 		this.documentFieldsToLoad = documentFieldsToLoad;
 	}
 
+	public void setDocValuesFieldsToLoad(Set<String> docValuesFieldsToLoad) {
+		this.docValuesFieldsToLoad = docValuesFieldsToLoad;
+	}
+
 	public void setStartDocument(final ScoreDoc startDocument) {
 		this.startDocument = startDocument;
 	}
@@ -80,6 +129,33 @@ public class PojoReadRequest implements ReadRequest {
 		this.maxExplanationCount = maxExplanationCount;
 	}
 
+	public void setLazyExplanation(boolean lazyExplanation) {
+		this.lazyExplanation = lazyExplanation;
+	}
+
+	public void setTotalHitsThreshold(int totalHitsThreshold) {
+		this.totalHitsThreshold = totalHitsThreshold;
+	}
+
+	public void setSort(Sort sort) {
+		this.sort = sort;
+	}
+
+	public void setRangeFacets(List<RangeFacet> rangeFacets) {
+		this.rangeFacets = rangeFacets;
+	}
+
+	public void setQueryBudget(final @Nullable QueryBudget queryBudget) {
+		this.queryBudget = queryBudget;
+	}
+
+	/**
+	 * @param requiredGeneration A negative value to not wait for any generation.
+	 */
+	public void setRequiredGeneration(long requiredGeneration) {
+		this.requiredGeneration = requiredGeneration;
+	}
+
 	@Override
 	public boolean getScoreInclusion() {
 		return this.scoreInclusion;
@@ -1,5 +1,9 @@
 package org.codeturnery.lucene.access;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
 import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.Facets;
 import org.apache.lucene.search.Explanation;
@@ -13,16 +17,29 @@ import org.apache.lucene.search.TopDocs;
 public class PojoReadResponse implements ReadResponse {
 	private int actualHitCount = -1;
 	private TopDocs hits;
+	private long totalHitCount;
+	private boolean totalHitCountExact;
+	private boolean partialResult;
 	private Facets facets;
 	private Explanation[] explanations;
+	private LazyExplanations lazyExplanations;
 	private int actualExplanationCount;
 	private int actualDocumentCount;
 	private Document[] documents = new Document[0];
+	private final Map<String, DocValuesColumn> columns = new LinkedHashMap<>();
 
 	public Explanation[] getExplanations() {
 		return this.explanations;
 	}
 
+	/**
+	 * @return The handle set if {@link ReadRequest#getLazyExplanation()} was
+	 *         requested, must be closed by the caller.
+	 */
+	public Optional<LazyExplanations> getLazyExplanations() {
+		return Optional.ofNullable(this.lazyExplanations);
+	}
+
 	public int getActualDocumentCount() {
 		return this.actualDocumentCount;
 	}
@@ -36,6 +53,13 @@ public class PojoReadResponse implements ReadResponse {
 		return this.documents;
 	}
 
+	/**
+	 * @return The loaded doc values columns by their field.
+	 */
+	public Map<String, DocValuesColumn> getColumns() {
+		return this.columns;
+	}
+
 	public int getActualHitCount() {
 		return this.actualHitCount;
 	}
@@ -44,6 +68,25 @@ public class PojoReadResponse implements ReadResponse {
 		return this.hits;
 	}
 
+	public long getTotalHitCount() {
+		return this.totalHitCount;
+	}
+
+	/**
+	 * @return False if {@link #getTotalHitCount()} is only a lower bound.
+	 */
+	public boolean getTotalHitCountExact() {
+		return this.totalHitCountExact;
+	}
+
+	/**
+	 * @return True if the hits, facets and counts are incomplete, see
+	 *         {@link ReadRequest#getQueryBudget()}.
+	 */
+	public boolean getPartialResult() {
+		return this.partialResult;
+	}
+
 	public Facets getFacets() {
 		return this.facets;
 	}
@@ -53,6 +96,17 @@ public class PojoReadResponse implements ReadResponse {
 		this.hits = hits;
 	}
 
+	@Override
+	public void setTotalHitCount(final long count, final boolean exact) {
+		this.totalHitCount = count;
+		this.totalHitCountExact = exact;
+	}
+
+	@Override
+	public void setPartialResult(final boolean partial) {
+		this.partialResult = partial;
+	}
+
 	@Override
 	public void setFacets(Facets facets) {
 		this.facets = facets;
@@ -66,6 +120,11 @@ public class PojoReadResponse implements ReadResponse {
 		this.explanations[index] = explanation;
 	}
 
+	@Override
+	public void setLazyExplanations(final LazyExplanations lazyExplanations) {
+		this.lazyExplanations = lazyExplanations;
+	}
+
 	@Override
 	public void addDocument(ScoreDoc scoreDoc, Document document, final int index) {
 		if (this.documents.length == 0) {
@@ -74,6 +133,11 @@ public class PojoReadResponse implements ReadResponse {
 		this.documents[index] = document;
 	}
 
+	@Override
+	public void addColumn(final DocValuesColumn column) {
+		this.columns.put(column.getField(), column);
+	}
+
 	@Override
 	public void setActualExplanationCount(int count) {
 		this.actualExplanationCount = count;
@@ -0,0 +1,58 @@
+package org.codeturnery.lucene.access;
+
+import java.time.Duration;
+
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.QueryTimeout;
+
+/**
+ * Limits the time a single read request may spend searching, see
+ * {@link ReadRequest#getQueryBudget()}.
+ * <p>
+ * The budget is checked cooperatively while terms are enumerated (via
+ * {@link ExitableDirectoryReader}) and while hits are collected. Once it is
+ * exhausted the search stops and the hits collected so far are returned,
+ * flagged via {@link ReadResponse#setPartialResult(boolean)}.
+ * <p>
+ * The caller may also stop the search early from another thread via
+ * {@link #cancel()}, e.g. when the result is no longer needed.
+ */
+public class QueryBudget implements QueryTimeout {
+	private final long deadline;
+	private volatile boolean cancelled;
+
+	/**
+	 * @param budget The time starting now after which the search is stopped.
+	 */
+	public QueryBudget(final Duration budget) {
+		this.deadline = System.nanoTime() + budget.toNanos();
+	}
+
+	/**
+	 * Stops the searches using this budget as soon as they check it next.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * @return The time left until the budget is exhausted, zero if it already is
+	 *         or if this instance was cancelled.
+	 */
+	public Duration getRemaining() {
+		if (this.cancelled) {
+			return Duration.ZERO;
+		}
+		final long remaining = this.deadline - System.nanoTime();
+		return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+	}
+
+	@Override
+	public boolean shouldExit() {
+		return this.cancelled || this.deadline - System.nanoTime() <= 0;
+	}
+}
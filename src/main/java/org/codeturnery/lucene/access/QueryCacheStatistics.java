@@ -0,0 +1,81 @@
+package org.codeturnery.lucene.access;
+
+import org.apache.lucene.search.LRUQueryCache;
+
+/**
+ * Snapshot of the counters of a {@link LRUQueryCache} at the time of creation.
+ * <p>
+ * Retrieve instances via {@link IndexSearcherFactory#getQueryCacheStatistics()}.
+ */
+public class QueryCacheStatistics {
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final long cacheCount;
+	private final long cacheSize;
+	private final long ramBytesUsed;
+
+	public QueryCacheStatistics(final LRUQueryCache queryCache) {
+		this.hitCount = queryCache.getHitCount();
+		this.missCount = queryCache.getMissCount();
+		this.evictionCount = queryCache.getEvictionCount();
+		this.cacheCount = queryCache.getCacheCount();
+		this.cacheSize = queryCache.getCacheSize();
+		this.ramBytesUsed = queryCache.ramBytesUsed();
+	}
+
+	/**
+	 * @return The number of lookups that found a cached entry.
+	 */
+	public long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * @return The number of lookups that did not find a cached entry.
+	 */
+	public long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * @return The number of entries that were removed from the cache, e.g. due to
+	 *         size limits or closed segments.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * @return The total number of entries ever added to the cache.
+	 */
+	public long getCacheCount() {
+		return this.cacheCount;
+	}
+
+	/**
+	 * @return The number of entries currently in the cache.
+	 */
+	public long getCacheSize() {
+		return this.cacheSize;
+	}
+
+	public long getRamBytesUsed() {
+		return this.ramBytesUsed;
+	}
+
+	/**
+	 * @return The ratio of hits to all lookups, <code>0</code> if no lookup was
+	 *         done yet.
+	 */
+	public double getHitRate() {
+		final long totalCount = this.hitCount + this.missCount;
+		return totalCount == 0 ? 0 : (double) this.hitCount / totalCount;
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + this.hitCount + ", misses=" + this.missCount + ", evictions=" + this.evictionCount
+				+ ", cached=" + this.cacheSize + ", ramBytesUsed=" + this.ramBytesUsed;
+	}
+}
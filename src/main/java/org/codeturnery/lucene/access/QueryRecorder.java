@@ -0,0 +1,20 @@
+package org.codeturnery.lucene.access;
+
+import org.apache.lucene.search.Query;
+
+/**
+ * Gets notified about the queries executed by a {@link ReadToolbox}, see
+ * {@link ReadToolbox#setQueryRecorder(QueryRecorder)}.
+ */
+@FunctionalInterface
+public interface QueryRecorder {
+	/**
+	 * Called before the given query is executed. Implementations must be
+	 * thread-safe and should return quickly, as this is called on the thread
+	 * executing the query.
+	 *
+	 * @param query  The executed query.
+	 * @param facets <code>true</code> if facets are counted for the query.
+	 */
+	public void record(Query query, boolean facets);
+}
@@ -0,0 +1,80 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.range.LongRange;
+import org.apache.lucene.facet.range.LongRangeFacetCounts;
+
+/**
+ * Defines ranges to count the values of a numeric doc values field in, e.g.
+ * one created via
+ * {@link org.codeturnery.lucene.document.FieldFactory#createIndexedLong(String, long, boolean)}.
+ * <p>
+ * The counts are provided by the {@link Facets} returned from
+ * {@link ReadToolbox#loadFacets(org.apache.lucene.search.Query, java.util.List)}
+ * and similar methods, with the field name as dimension. Use
+ * {@link Facets#getAllChildren(String, String...)} to get the ranges in the
+ * defined order, {@link Facets#getTopChildren(int, String, String...)} orders
+ * them by count. Only one instance per field can be used in the same request.
+ */
+public class RangeFacet {
+	private final String field;
+	private final LongRange[] ranges;
+
+	private RangeFacet(final String field, final LongRange[] ranges) {
+		this.field = field;
+		this.ranges = ranges;
+	}
+
+	/**
+	 * @param ranges May overlap, the label of each range is used as label of its
+	 *               count.
+	 */
+	public static RangeFacet ofRanges(final String field, final LongRange... ranges) {
+		return new RangeFacet(field, ranges.clone());
+	}
+
+	/**
+	 * Creates consecutive ranges of the same width, starting at the given
+	 * minimum. The label of each range is its (inclusive) start value.
+	 *
+	 * @param min         The start of the first range.
+	 * @param width       The width of each range, must be positive.
+	 * @param bucketCount The number of ranges, must be positive.
+	 * @throws ArithmeticException If the end of the last range exceeds the long
+	 *                             range.
+	 */
+	public static RangeFacet ofHistogram(final String field, final long min, final long width,
+			final int bucketCount) {
+		if (width <= 0 || bucketCount <= 0) {
+			throw new IllegalArgumentException(
+					"Width and bucket count must be positive, got: " + width + " and " + bucketCount);
+		}
+		// fail early instead of creating overflowing ranges
+		Math.addExact(Math.addExact(min, Math.multiplyExact(width, bucketCount - 1L)), width - 1);
+		final var ranges = new LongRange[bucketCount];
+		for (int i = 0; i < bucketCount; i++) {
+			final long start = min + i * width;
+			// an exclusive end would overflow for a last range ending at Long.MAX_VALUE
+			ranges[i] = new LongRange(Long.toString(start), start, true, start + width - 1, true);
+		}
+		return new RangeFacet(field, ranges);
+	}
+
+	public String getField() {
+		return this.field;
+	}
+
+	public LongRange[] getRanges() {
+		return this.ranges.clone();
+	}
+
+	/**
+	 * Counts the values of the documents collected by the given collector.
+	 */
+	Facets count(final FacetsCollector facetsCollector) throws IOException {
+		return new LongRangeFacetCounts(this.field, facetsCollector, this.ranges);
+	}
+}
@@ -0,0 +1,258 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.codeturnery.lucene.access.ReadExecuter.ReadFunction;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Collects multiple reads and executes them on a single searcher acquired from
+ * the {@link ReadExecuter}, see {@link ReadToolbox#createBatch()}.
+ * <p>
+ * Compared to calling the corresponding {@link ReadToolbox} methods one after
+ * another, the searcher is only acquired and released once and all reads see
+ * the same point-in-time view of the index, e.g. the counts and facets of a
+ * single page are consistent with each other.
+ * <p>
+ * Each method only registers a read and returns a future that is completed by
+ * {@link #execute()}. An instance can only be executed once.
+ */
+public class ReadBatch {
+	private final ReadToolbox readToolbox;
+	private final ReadExecuter manager;
+	private final List<Operation<?>> operations = new ArrayList<>();
+	private @Nullable Executor executor;
+	private long requiredGeneration = -1;
+	private boolean executed;
+
+	ReadBatch(final ReadToolbox readToolbox, final ReadExecuter manager) {
+		this.readToolbox = readToolbox;
+		this.manager = manager;
+	}
+
+	/**
+	 * Sets an executor to run the reads of this batch in parallel. By default they
+	 * are executed one after another on the thread calling {@link #execute()}.
+	 * <p>
+	 * Do not use the executor of the {@link IndexSearcher} (see
+	 * {@link IndexSearcherFactory#setExecutor(Executor)}) here, as a read
+	 * blocking in a bounded pool while waiting for its slices may exhaust it.
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * @see ReadToolbox#loadDocuments(ReadRequest, ReadResponse)
+	 */
+	public <R extends ReadResponse> CompletableFuture<R> loadDocuments(final ReadRequest request,
+			final R receiver) {
+		requireGeneration(request);
+		this.readToolbox.record(request.getQuery(), false);
+		return add((searcher, taxonomyReader, config) -> this.readToolbox.searchDocuments(searcher, taxonomyReader,
+				request, receiver));
+	}
+
+	/**
+	 * @see ReadToolbox#loadDocumentsAndFacets(ReadRequest, ReadResponse)
+	 */
+	public <R extends ReadResponse> CompletableFuture<R> loadDocumentsAndFacets(final ReadRequest request,
+			final R receiver) {
+		requireGeneration(request);
+		this.readToolbox.record(request.getQuery(), true);
+		return add((searcher, taxonomyReader, config) -> ReadToolbox.searchDocumentsAndFacets(searcher,
+				taxonomyReader, config, request, receiver));
+	}
+
+	/**
+	 * @see ReadToolbox#loadFacets(Query)
+	 */
+	public CompletableFuture<Facets> loadFacets(final Query query) {
+		this.readToolbox.record(query, true);
+		return add((searcher, taxonomyReader, config) -> this.readToolbox.searchFacets(searcher, taxonomyReader,
+				config, query));
+	}
+
+	/**
+	 * @see ReadToolbox#getFacetResult(Query, String, int)
+	 */
+	public CompletableFuture<Optional<FacetResult>> getFacetResult(final Query query, final String dimension,
+			final int topN) {
+		this.readToolbox.record(query, true);
+		return add((searcher, taxonomyReader, config) -> Optional.ofNullable(
+				this.readToolbox.searchFacets(searcher, taxonomyReader, config, query).getTopChildren(topN, dimension)));
+	}
+
+	/**
+	 * @see ReadToolbox#loadCount(Query)
+	 */
+	public CompletableFuture<Integer> loadCount(final Query query) {
+		this.readToolbox.record(query, false);
+		return add((searcher, taxonomyReader, config) -> this.readToolbox.count(searcher, taxonomyReader, query));
+	}
+
+	/**
+	 * @see ReadToolbox#loadFacets(Query, List)
+	 */
+	public CompletableFuture<Facets> loadFacets(final Query query, final List<RangeFacet> rangeFacets) {
+		this.readToolbox.record(query, true);
+		return add((searcher, taxonomyReader, config) -> ReadToolbox.searchRangeFacets(searcher, taxonomyReader,
+				config, query, rangeFacets, true));
+	}
+
+	/**
+	 * @see ReadToolbox#loadRangeFacets(Query, List)
+	 */
+	public CompletableFuture<Facets> loadRangeFacets(final Query query, final List<RangeFacet> rangeFacets) {
+		this.readToolbox.record(query, true);
+		return add((searcher, taxonomyReader, config) -> ReadToolbox.searchRangeFacets(searcher, taxonomyReader,
+				config, query, rangeFacets, false));
+	}
+
+	/**
+	 * @see ReadToolbox#loadSampledFacets(Query, int)
+	 */
+	public CompletableFuture<SampledFacets> loadSampledFacets(final Query query, final int sampleSize) {
+		this.readToolbox.record(query, true);
+		return add((searcher, taxonomyReader, config) -> ReadToolbox.sampleFacets(searcher, taxonomyReader, config,
+				query, sampleSize));
+	}
+
+	/**
+	 * @see ReadToolbox#loadCounts(Query, List)
+	 */
+	public CompletableFuture<int[]> loadCounts(final Query base, final List<Query> filters) {
+		this.readToolbox.record(base, false);
+		return add((searcher, taxonomyReader, config) -> ReadToolbox.countAll(searcher, base, filters));
+	}
+
+	/**
+	 * @see ReadToolbox#loadMissingCount(Query, List)
+	 */
+	public CompletableFuture<int[]> loadMissingCount(final Query query, final List<String> fields) {
+		return add((searcher, taxonomyReader, config) -> ReadToolbox.countMissing(searcher, query, fields));
+	}
+
+	/**
+	 * Acquires a searcher and executes all registered reads with it. If a
+	 * {@link ReadRequest#getRequiredGeneration() required generation} was set in
+	 * any of the requests, the highest one is waited for first.
+	 * <p>
+	 * Each future returned so far is completed, either normally or exceptionally,
+	 * before this method returns.
+	 *
+	 * @throws IOException The failure of the first failed read, if any.
+	 * @throws IllegalStateException If this batch was already executed.
+	 */
+	public void execute() throws IOException {
+		ensureNotExecuted();
+		this.executed = true;
+		if (this.operations.isEmpty()) {
+			return;
+		}
+
+		final ReadFunction<@Nullable Void> function = (searcher, taxonomyReader, config) -> {
+			final @Nullable Executor executor = this.executor;
+			if (executor == null || this.operations.size() == 1) {
+				for (final Operation<?> operation : this.operations) {
+					operation.run(searcher, taxonomyReader, config);
+				}
+			} else {
+				// the searcher must not be released before all reads finished
+				CompletableFuture.allOf(this.operations.stream()
+						.map(operation -> CompletableFuture
+								.runAsync(() -> operation.run(searcher, taxonomyReader, config), executor))
+						.toArray(CompletableFuture[]::new)).join();
+			}
+			return null;
+		};
+		try {
+			if (this.requiredGeneration < 0) {
+				this.manager.read(function);
+			} else {
+				this.manager.read(function, this.requiredGeneration);
+			}
+		} catch (final IOException | RuntimeException e) {
+			for (final Operation<?> operation : this.operations) {
+				operation.future.completeExceptionally(e);
+			}
+			throw e;
+		}
+
+		for (final Operation<?> operation : this.operations) {
+			rethrowFailure(operation.future);
+		}
+	}
+
+	private <T> CompletableFuture<T> add(final ReadFunction<T> function) {
+		ensureNotExecuted();
+		final var operation = new Operation<>(function);
+		this.operations.add(operation);
+		return operation.future;
+	}
+
+	private void requireGeneration(final ReadRequest request) {
+		request.getRequiredGeneration().ifPresent(generation -> {
+			this.requiredGeneration = Math.max(this.requiredGeneration, generation);
+		});
+	}
+
+	private void ensureNotExecuted() {
+		if (this.executed) {
+			throw new IllegalStateException("Read batch was already executed.");
+		}
+	}
+
+	private static void rethrowFailure(final CompletableFuture<?> future) throws IOException {
+		if (!future.isCompletedExceptionally()) {
+			return;
+		}
+		try {
+			future.join();
+		} catch (final CompletionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	private static class Operation<T> {
+		private final ReadFunction<T> function;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Operation(final ReadFunction<T> function) {
+			this.function = function;
+		}
+
+		/**
+		 * Completes the future of this instance, never throws.
+		 */
+		void run(final IndexSearcher searcher, final TaxonomyReader taxonomyReader, final FacetsConfig config) {
+			try {
+				this.future.complete(this.function.apply(searcher, taxonomyReader, config));
+			} catch (final IOException | RuntimeException e) {
+				this.future.completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -9,6 +9,30 @@ import org.apache.lucene.search.IndexSearcher;
 public interface ReadExecuter {
 	public <R> R read(final ReadFunction<R> function) throws IOException;
 
+	/**
+	 * Like {@link #read(ReadFunction)}, but waits until the changes up to the given
+	 * generation are visible to the reader before executing the function.
+	 * <p>
+	 * The generation is the sequence number returned by the
+	 * {@link org.apache.lucene.index.IndexWriter} operations, e.g. by
+	 * {@link WriteToolbox#accept(org.apache.lucene.document.Document)}.
+	 * <p>
+	 * The default implementation throws an
+	 * {@link UnsupportedOperationException}, as it can not know which changes
+	 * are visible to its reader.
+	 *
+	 * @param function   The function to execute.
+	 * @param generation The sequence number of the write operation that must be
+	 *                   visible to the function.
+	 * @throws UnsupportedOperationException If this instance can not wait for
+	 *                                       generations, e.g. because its reader
+	 *                                       can not see uncommitted changes.
+	 */
+	public default <R> R read(final ReadFunction<R> function, final long generation) throws IOException {
+		throw new UnsupportedOperationException(
+				"Waiting for a generation is not supported by " + getClass().getName() + ".");
+	}
+
 	/**
 	 * Instances of this function are provided with the necessary parameters to
 	 * search a Lucene index.
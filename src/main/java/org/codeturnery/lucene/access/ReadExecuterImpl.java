@@ -5,8 +5,11 @@ import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager.SearcherAndTaxonomy;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.eclipse.jdt.annotation.Checks;
+import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,10 +18,35 @@ public class ReadExecuterImpl implements ReadExecuter {
 
 	private final FacetsConfig facetsConfig;
 	private final SearcherTaxonomyManager searcherManager;
+	private final boolean writeBacked;
+	private final @Nullable ControlledRealTimeReopenThread<SearcherAndTaxonomy> reopenThread;
 
+	/**
+	 * Creates an instance reading from a directory-backed searcher manager, which
+	 * only sees committed changes. {@link #read(ReadFunction, long)} is not
+	 * supported by such instances.
+	 */
 	public ReadExecuterImpl(final SearcherTaxonomyManager searcherManager, final FacetsConfig facetsConfig) {
 		this.searcherManager = searcherManager;
 		this.facetsConfig = facetsConfig;
+		this.writeBacked = false;
+		this.reopenThread = null;
+	}
+
+	/**
+	 * Creates an instance reading from a write-backed searcher manager, which sees
+	 * uncommitted changes of the writer after a refresh.
+	 *
+	 * @param reopenThread The thread refreshing the given searcher manager. If
+	 *                     <code>null</code>, {@link #read(ReadFunction, long)} will
+	 *                     refresh the searcher manager itself.
+	 */
+	public ReadExecuterImpl(final SearcherTaxonomyManager searcherManager, final FacetsConfig facetsConfig,
+			final @Nullable ControlledRealTimeReopenThread<SearcherAndTaxonomy> reopenThread) {
+		this.searcherManager = searcherManager;
+		this.facetsConfig = facetsConfig;
+		this.writeBacked = true;
+		this.reopenThread = reopenThread;
 	}
 
 	@Override
@@ -32,4 +60,27 @@ public class ReadExecuterImpl implements ReadExecuter {
 			this.searcherManager.release(searcherAndTaxonomy);
 		}
 	}
+
+	@Override
+	public <R> R read(final ReadFunction<R> function, final long generation) throws IOException {
+		if (!this.writeBacked) {
+			// a directory reader does not see the uncommitted sequence numbers of the writer
+			throw new UnsupportedOperationException(
+					"Waiting for a generation requires a write-backed reader, see IndexManager#getWriteBackedReaderExecuter.");
+		}
+		if (this.reopenThread == null) {
+			// without a reopen thread we can't know which generation is visible
+			LOGGER.trace("No reopen thread present, refreshing to make generation {} visible.",
+					Long.valueOf(generation));
+			this.searcherManager.maybeRefreshBlocking();
+		} else {
+			try {
+				this.reopenThread.waitForGeneration(generation);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ThreadInterruptedException(e);
+			}
+		}
+		return read(function);
+	}
 }
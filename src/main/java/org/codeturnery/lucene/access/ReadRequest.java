@@ -1,6 +1,9 @@
 package org.codeturnery.lucene.access;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 
 import org.apache.lucene.document.Document;
@@ -8,9 +11,16 @@ import org.apache.lucene.facet.Facets;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
 
 @SuppressWarnings({ "javadoc" })
 public interface ReadRequest {
+	/**
+	 * Same default as in
+	 * {@link org.apache.lucene.search.IndexSearcher#searchAfter(ScoreDoc, Query, int, Sort, boolean)}.
+	 */
+	public static final int DEFAULT_TOTAL_HITS_THRESHOLD = 1000;
+
 	/**
 	 * The query to execute and get the {@link Document} instances or {@link Facets}
 	 * for.
@@ -37,6 +47,22 @@ public interface ReadRequest {
 	 */
 	public Set<String> getDocumentFieldsToLoad();
 
+	/**
+	 * The fields to load from doc values for the same hits as the
+	 * {@link Document} instances. Each field is passed as
+	 * {@link DocValuesColumn} into {@link ReadResponse#addColumn(DocValuesColumn)}.
+	 * <p>
+	 * If fields are returned here and {@link #getDocumentFieldsToLoad()} is empty,
+	 * no stored fields are loaded at all, avoiding their decompression.
+	 * <p>
+	 * No doc values are loaded by default.
+	 * 
+	 * @return
+	 */
+	public default Set<String> getDocValuesFieldsToLoad() {
+		return Collections.emptySet();
+	}
+
 	/**
 	 * Return the {@link ScoreDoc} that marks the beginning of the result to return.
 	 * <p>
@@ -56,6 +82,18 @@ public interface ReadRequest {
 	 */
 	public boolean getScoreInclusion();
 
+	/**
+	 * Numeric ranges to count in addition to the taxonomy facets, when the
+	 * {@link Facets} are loaded together with the {@link Document} instances.
+	 * <p>
+	 * No ranges are counted by default.
+	 * 
+	 * @return
+	 */
+	public default List<RangeFacet> getRangeFacets() {
+		return Collections.emptyList();
+	}
+
 	/**
 	 * The maximum number of {@link Explanation} instances provided via
 	 * {@link ReadResponse#addExplanation(ScoreDoc, Explanation, int)}.
@@ -64,10 +102,82 @@ public interface ReadRequest {
 	 */
 	public int getMaxExplanationCount();
 
+	/**
+	 * @return True if the {@link Explanation} instances should not be computed
+	 *         eagerly and passed via
+	 *         {@link ReadResponse#addExplanation(ScoreDoc, Explanation, int)}, but
+	 *         be provided via a {@link LazyExplanations} handle passed to
+	 *         {@link ReadResponse#setLazyExplanations(LazyExplanations)} instead.
+	 *         False by default.
+	 */
+	public default boolean getLazyExplanation() {
+		return false;
+	}
+
+	/**
+	 * The order of the hits, e.g. {@link Sort#RELEVANCE} or a sort over doc values
+	 * fields.
+	 * <p>
+	 * If the index was written with an index sort (see
+	 * {@link IndexManager#setIndexSort(Sort)}) that starts with the returned
+	 * sort, the collection terminates early once enough hits were collected,
+	 * instead of visiting all matching documents.
+	 * <p>
+	 * Sorts by {@link Sort#RELEVANCE} by default.
+	 * 
+	 * @return
+	 */
+	public default Sort getSort() {
+		return Sort.RELEVANCE;
+	}
+
 	/**
 	 * The maximum number of results to request from the index.
 	 * 
 	 * @return
 	 */
 	public int getMaxHitCount();
+
+	/**
+	 * The number of hits up to which the total hit count is computed exactly.
+	 * <p>
+	 * Once more hits than this were found, non-competitive documents may be
+	 * skipped, e.g. via block-max WAND for relevance sorted queries, and the
+	 * total hit count passed to {@link ReadResponse#setTotalHitCount(long, boolean)}
+	 * is only a lower bound. Use {@link Integer#MAX_VALUE} to always count exactly.
+	 * <p>
+	 * Returns {@link #DEFAULT_TOTAL_HITS_THRESHOLD} by default.
+	 * 
+	 * @return
+	 */
+	public default int getTotalHitsThreshold() {
+		return DEFAULT_TOTAL_HITS_THRESHOLD;
+	}
+
+	/**
+	 * Limits the time spent searching the hits of this request. When the budget
+	 * is exhausted or cancelled, the hits (and facets) collected so far are
+	 * returned and {@link ReadResponse#setPartialResult(boolean)} is called with
+	 * <code>true</code>.
+	 * 
+	 * @return The budget or an empty {@link Optional} if the search is not
+	 *         limited, which is the default.
+	 */
+	public default Optional<QueryBudget> getQueryBudget() {
+		return Optional.empty();
+	}
+
+	/**
+	 * The generation (sequence number of a write operation) that must be visible
+	 * to the reader before the request is executed.
+	 * <p>
+	 * Useful to read your own writes, e.g. by using the return of
+	 * {@link WriteToolbox#accept(Document)}.
+	 * 
+	 * @return The generation to wait for or an empty {@link OptionalLong} if the
+	 *         request can be executed on the currently visible data.
+	 */
+	public default OptionalLong getRequiredGeneration() {
+		return OptionalLong.empty();
+	}
 }
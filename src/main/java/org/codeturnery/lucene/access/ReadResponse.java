@@ -5,16 +5,51 @@ import org.apache.lucene.facet.Facets;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.IOUtils;
 
 @SuppressWarnings({ "javadoc" })
 public interface ReadResponse {
 	public void setHits(TopDocs topDocs);
 
+	/**
+	 * @param count The total number of hits, see {@link TopDocs#totalHits}.
+	 * @param exact False if the count is only a lower bound, see
+	 *              {@link ReadRequest#getTotalHitsThreshold()}.
+	 */
+	public default void setTotalHitCount(final long count, final boolean exact) {
+		// the count is also available via the hits
+	}
+
 	public void setFacets(Facets facets);
 
+	/**
+	 * @param partial True if the search was stopped before all hits were
+	 *                collected, see {@link ReadRequest#getQueryBudget()}.
+	 */
+	public default void setPartialResult(final boolean partial) {
+		// only relevant if a budget was requested
+	}
+
 	public void addExplanation(ScoreDoc scoreDoc, Explanation explanation, int index);
 
+	/**
+	 * The receiver is responsible to close the given handle. By default the
+	 * handle is closed right away.
+	 */
+	public default void setLazyExplanations(final LazyExplanations explanations) {
+		IOUtils.closeWhileHandlingException(explanations);
+	}
+
 	public void addDocument(ScoreDoc scoreDoc, Document document, int index);
+
+	/**
+	 * Ignores the column by default.
+	 *
+	 * @see ReadRequest#getDocValuesFieldsToLoad()
+	 */
+	public default void addColumn(final DocValuesColumn column) {
+		// nothing to do by default
+	}
 	
 	public void setActualExplanationCount(int count);
 	
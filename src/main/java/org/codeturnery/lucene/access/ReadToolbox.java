@@ -1,173 +1,722 @@
 package org.codeturnery.lucene.access;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.FacetResult;
 import org.apache.lucene.facet.Facets;
 import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.MultiFacets;
+import org.apache.lucene.facet.RandomSamplingFacetsCollector;
 import org.apache.lucene.facet.taxonomy.FacetLabel;
 import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.facet.taxonomy.ParallelTaxonomyArrays.IntArray;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader.ExitingReaderException;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.TermsEnum.SeekStatus;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.MultiCollectorManager;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Sort;
-import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldCollectorManager;
 import org.apache.lucene.search.TopFieldDocs;
-import org.apache.lucene.search.TotalHitCountCollector;
-import org.apache.lucene.tests.search.CheckHits;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.StringHelper;
+import org.codeturnery.lucene.access.ReadExecuter.ReadFunction;
 import org.codeturnery.lucene.query.QueryFactory;
 import org.eclipse.jdt.annotation.Checks;
 import org.eclipse.jdt.annotation.Nullable;
 
 public class ReadToolbox {
+	/**
+	 * The seed used by {@link #loadSampledFacets(Query, int)}, fixed to sample
+	 * the same documents for the same query and reader.
+	 */
+	private static final long SAMPLING_SEED = 0x5eed;
+
 	private final ReadExecuter manager;
+	private @Nullable QueryRecorder queryRecorder;
+	private @Nullable ResultCache resultCache;
+	private @Nullable FacetCountCache facetCountCache;
+	private volatile @Nullable TaxonomyLabelDictionary labelDictionary;
 
 	public ReadToolbox(final ReadExecuter luceneIndex) {
 		this.manager = luceneIndex;
 	}
 
-	public <R extends ReadResponse> void loadDocuments(final ReadRequest request, final R receiver) throws IOException {
-		Checks.requireNonNull(request);
-		final @Nullable ScoreDoc afterDocument = request.getAfterDocument().orElse(null);
-		final boolean scoreInclusion = request.getScoreInclusion();
-		final Query query = Checks.requireNonNull(request.getQuery());
-		final int maxHitCount = request.getMaxHitCount();
-		final Sort sort = Sort.RELEVANCE;
+	/**
+	 * Sets an instance to be notified about the queries executed via
+	 * {@link #loadDocuments(ReadRequest, ReadResponse)},
+	 * {@link #loadDocumentsAndFacets(ReadRequest, ReadResponse)},
+	 * {@link #loadFacets(Query)} and {@link #loadCount(Query)}, e.g. a
+	 * {@link WarmingSearcherFactory}.
+	 */
+	public void setQueryRecorder(final QueryRecorder queryRecorder) {
+		this.queryRecorder = queryRecorder;
+	}
 
-		this.manager.read((searcher, taxonomyReader, config) -> {
-			Checks.requireNonNull(searcher);
+	/**
+	 * Sets a cache for the results of {@link #loadCount(Query)},
+	 * {@link #loadFacets(Query)} and the hits of
+	 * {@link #loadDocuments(ReadRequest, ReadResponse)}, also used by the
+	 * corresponding methods of {@link ReadBatch}. May be shared between instances.
+	 */
+	public void setResultCache(final ResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
 
-			final TopFieldDocs topDocs = searcher.searchAfter(afterDocument, query, maxHitCount, sort, scoreInclusion);
-			fillReceiverWithHits(searcher, topDocs, request, receiver);
-			return receiver;
-		});
+	/**
+	 * Sets a cache for the per-segment facet counts of {@link #loadFacets(Query)},
+	 * also used by the corresponding methods of {@link ReadBatch}. Unlike the
+	 * {@link ResultCache} its entries stay useful after a refresh. May be shared
+	 * between instances.
+	 */
+	public void setFacetCountCache(final FacetCountCache facetCountCache) {
+		this.facetCountCache = facetCountCache;
+	}
+
+	/**
+	 * Creates a batch to execute multiple reads on the same point-in-time view of
+	 * the index, acquiring the searcher only once.
+	 */
+	public ReadBatch createBatch() {
+		return new ReadBatch(this, this.manager);
+	}
+
+	public <R extends ReadResponse> void loadDocuments(final ReadRequest request, final R receiver) throws IOException {
+		Checks.requireNonNull(request);
+		record(request.getQuery(), false);
+		read(request, (searcher, taxonomyReader, config) -> searchDocuments(searcher, taxonomyReader, request,
+				receiver));
 	}
 
 	public <R extends ReadResponse> void loadDocumentsAndFacets(final ReadRequest request, final R receiver)
 			throws IOException {
-		this.manager.read((searcher, taxonomyReader, config) -> {
-			final FacetsCollector facetsCollector = new FacetsCollector();
-			final TopDocs topDocs = FacetsCollector.searchAfter(searcher, request.getAfterDocument().orElse(null),
-					request.getQuery(), request.getMaxHitCount(), Sort.RELEVANCE, request.getScoreInclusion(),
-					facetsCollector);
-			final Facets facets = new FastTaxonomyFacetCounts(taxonomyReader, config, facetsCollector);
+		record(request.getQuery(), true);
+		read(request, (searcher, taxonomyReader, config) -> searchDocumentsAndFacets(searcher, taxonomyReader,
+				config, request, receiver));
+	}
 
-			receiver.setFacets(facets);
-			fillReceiverWithHits(searcher, topDocs, request, receiver);
+	public Facets loadFacets(final Query query) throws IOException {
+		record(query, true);
+		return this.manager.read((searcher, taxonomyReader, config) -> searchFacets(searcher, taxonomyReader, config,
+				query));
+	}
 
-			return receiver;
-		});
+	/**
+	 * Like {@link #loadFacets(Query)}, but additionally counts the values of the
+	 * given numeric fields in ranges, with the taxonomy and range counts computed
+	 * from the same collected matches. The range counts are available with the
+	 * field name of each {@link RangeFacet} as dimension.
+	 * <p>
+	 * The {@link ResultCache} and {@link FacetCountCache} are not used.
+	 *
+	 * @throws IllegalArgumentException If multiple instances use the same field.
+	 */
+	public Facets loadFacets(final Query query, final List<RangeFacet> rangeFacets) throws IOException {
+		record(query, true);
+		return this.manager.read((searcher, taxonomyReader, config) -> searchRangeFacets(searcher, taxonomyReader,
+				config, query, rangeFacets, true));
 	}
 
-	public Facets loadFacets(final Query query) throws IOException {
-		return this.manager.read((searcher, taxonomyReader, config) -> {
-			// using the default for now, can be made a method parameter if score values are
-			// actually needed
-			final boolean keepScores = false;
-			final FacetsCollector facetsCollector = new FacetsCollector(keepScores);
-			searcher.search(query, facetsCollector);
+	/**
+	 * Like {@link #loadFacets(Query, List)}, but only counts the ranges, e.g.
+	 * the buckets of a price histogram, instead of one
+	 * {@link #loadCount(Query)} per bucket.
+	 */
+	public Facets loadRangeFacets(final Query query, final List<RangeFacet> rangeFacets) throws IOException {
+		record(query, true);
+		return this.manager.read((searcher, taxonomyReader, config) -> searchRangeFacets(searcher, taxonomyReader,
+				config, query, rangeFacets, false));
+	}
 
-			return new FastTaxonomyFacetCounts(taxonomyReader, config, facetsCollector);
-		});
+	/**
+	 * Like {@link #loadFacets(Query)}, but if more than the given number of
+	 * documents match the query, only a random sample of that size is counted
+	 * and the counts are scaled up accordingly. The documents are still matched
+	 * exactly, but reading and counting their ordinals is limited to the sample.
+	 * <p>
+	 * Useful for facets of very large results where exact counts are not
+	 * needed, e.g. a sidebar for a match-all query.
+	 *
+	 * @param sampleSize The number of matching documents above which sampling is
+	 *                   used.
+	 */
+	public SampledFacets loadSampledFacets(final Query query, final int sampleSize) throws IOException {
+		record(query, true);
+		return this.manager.read((searcher, taxonomyReader, config) -> sampleFacets(searcher, taxonomyReader,
+				config, query, sampleSize));
 	}
 
 	public Integer loadCount(final Query query) throws IOException {
-		return this.manager.read((searcher, taxonomyReader, config) -> {
-			final var collector = new TotalHitCountCollector();
-			searcher.search(query, collector);
-			final int totalHits = collector.getTotalHits();
-
-			return Integer.valueOf(totalHits);
-		});
+		record(query, false);
+		return this.manager.read((searcher, taxonomyReader, config) -> count(searcher, taxonomyReader, query));
 	}
 	
 	/**
 	 * Collects the number documents, that do not have a specific field set, for an
 	 * array of fields.
 	 * <p>
-	 * Will first execute the given query to collect the document IDs matching it.
-	 * Afterwards for each given field another search will be performed to collect
-	 * the document IDs that <strong>do</strong> have the current field set. The
-	 * documents present in the first search result but <strong>not</strong> present
-	 * in the second one will be counted and added to the to-be-returned result
-	 * array.
+	 * Executes the given query once per segment and marks the matching live
+	 * documents in a bit set. Afterwards for each given field the postings of all
+	 * its terms in the segment are marked in a second bit set, which is reused
+	 * between fields. The size of the first set minus the size of the intersection
+	 * of both is the number of matching documents missing the field.
 	 * <p>
-	 * 
-	 * TODO: is this method needed? or does have
-	 * {@link QueryFactory#createMissingQuery(Query, String, String...)} better
-	 * performance or can this method be improved with the approach in that method?
-	 * <p>
-	 * TODO: expand on this principle to implement methods (performantly) loading
-	 * actual documents and facets TODO: is there an advantage in making the
-	 * {@link TermRangeQuery} adjustable (i.e. a parameter)?
+	 * Compared to {@link QueryFactory#createMissingQuery(Query, String, String...)}
+	 * this works for any indexed field and does not require a field tracking the
+	 * used fields, but it is slower for fields with many distinct terms.
 	 */
 	public int[] loadMissingCount(final Query query, final List<String> fields) throws IOException {
+		if (fields.isEmpty()) {
+			return new int[0];
+		}
+		return this.manager.read((searcher, taxonomyReader, config) -> countMissing(searcher, query, fields));
+	}
+
+	/**
+	 * Counts the documents matching both the given base query and each of the
+	 * given filters, e.g. the entries of a navigation or dashboard, in a single
+	 * pass instead of one {@link #loadCount(Query)} per filter.
+	 * <p>
+	 * For each segment {@link Weight#count(LeafReaderContext)} is tried first
+	 * for the conjunction of the base query and a filter, which can derive the
+	 * count from index statistics without visiting documents. The filters
+	 * without such a shortcut are counted by iterating the matches of the base
+	 * query in the segment once and advancing the iterator of each filter to
+	 * every match.
+	 *
+	 * @return The count for each filter, in the order of the given list.
+	 */
+	public int[] loadCounts(final Query base, final List<Query> filters) throws IOException {
+		if (filters.isEmpty()) {
+			return new int[0];
+		}
+		record(base, false);
+		return this.manager.read((searcher, taxonomyReader, config) -> countAll(searcher, base, filters));
+	}
+
+	<R extends ReadResponse> R searchDocuments(final IndexSearcher searcher, final TaxonomyReader taxonomyReader,
+			final ReadRequest request, final R receiver) throws IOException {
+		final Sort sort = request.getSort();
+		final @Nullable ResultCache resultCache = this.resultCache;
+		final @Nullable QueryBudget budget = request.getQueryBudget().orElse(null);
+		boolean partial = false;
+		final TopFieldDocs topDocs;
+		if (budget != null) {
+			// bypasses the result cache, as partial hits must not be cached
+			final var budgetedSearch = new BudgetedSearch<>(createTopDocsManager(searcher, request, sort), budget);
+			topDocs = populateScores(searcher, request, budgetedSearch.search(searcher, request.getQuery()));
+			partial = budgetedSearch.isPartial();
+		} else if (resultCache == null) {
+			topDocs = searchTopDocs(searcher, request, sort);
+		} else {
+			// only the hits are cached, documents and explanations are still loaded
+			topDocs = resultCache.get(searcher, taxonomyReader, ResultCache.Kind.TOP_DOCS, request.getQuery(),
+					getTopDocsParameters(request, sort),
+					() -> searchTopDocs(searcher, request, sort));
+		}
+		fillReceiverWithHits(searcher, topDocs, partial, request, receiver);
+		return receiver;
+	}
+
+	static <R extends ReadResponse> R searchDocumentsAndFacets(final IndexSearcher searcher,
+			final TaxonomyReader taxonomyReader, final FacetsConfig config, final ReadRequest request,
+			final R receiver) throws IOException {
+		final Query query = request.getQuery();
+		final var topDocsManager = createTopDocsManager(searcher, request, request.getSort());
+		final var collectorManager = new MultiCollectorManager(topDocsManager, new FacetsCollectorManager());
+		final @Nullable QueryBudget budget = request.getQueryBudget().orElse(null);
+		boolean partial = false;
+		final Object[] results;
+		final FacetsCollector facetsCollector;
+		if (budget == null) {
+			results = searcher.search(query, collectorManager);
+			facetsCollector = (FacetsCollector) results[1];
+		} else {
+			final var budgetedSearch = new BudgetedSearch<>(collectorManager, budget);
+			results = budgetedSearch.search(searcher, query);
+			partial = budgetedSearch.isPartial();
+			facetsCollector = BudgetedSearch.unwrap((FacetsCollector) results[1], searcher.getIndexReader());
+		}
+		TopFieldDocs topDocs = (TopFieldDocs) results[0];
+		if (!partial && topDocs.totalHits.relation != TotalHits.Relation.EQUAL_TO) {
+			// the facets collector visited all matches anyway, hence the exact count is known
+			long totalHitCount = 0;
+			for (final MatchingDocs matchingDocs : facetsCollector.getMatchingDocs()) {
+				totalHitCount += matchingDocs.totalHits;
+			}
+			topDocs = new TopFieldDocs(new TotalHits(totalHitCount, TotalHits.Relation.EQUAL_TO), topDocs.scoreDocs,
+					topDocs.fields);
+		}
+		populateScores(searcher, request, topDocs);
+		final Facets facets = countRanges(facetsCollector, request.getRangeFacets(),
+				new FastTaxonomyFacetCounts(taxonomyReader, config, facetsCollector));
+
+		receiver.setFacets(facets);
+		fillReceiverWithHits(searcher, topDocs, partial, request, receiver);
+
+		return receiver;
+	}
+
+	Facets searchFacets(final IndexSearcher searcher, final TaxonomyReader taxonomyReader,
+			final FacetsConfig config, final Query query) throws IOException {
+		final @Nullable ResultCache resultCache = this.resultCache;
+		if (resultCache != null) {
+			return resultCache.get(searcher, taxonomyReader, ResultCache.Kind.FACETS, query, null,
+					() -> computeFacets(searcher, taxonomyReader, config, query));
+		}
+		return computeFacets(searcher, taxonomyReader, config, query);
+	}
+
+	Integer count(final IndexSearcher searcher, final TaxonomyReader taxonomyReader, final Query query)
+			throws IOException {
+		final @Nullable ResultCache resultCache = this.resultCache;
+		if (resultCache != null) {
+			return resultCache.get(searcher, taxonomyReader, ResultCache.Kind.COUNT, query, null,
+					() -> Integer.valueOf(searcher.count(query)));
+		}
+		// uses a collector manager internally and may skip collecting if the
+		// count can be derived from index statistics
+		return Integer.valueOf(searcher.count(query));
+	}
+
+	private Facets computeFacets(final IndexSearcher searcher, final TaxonomyReader taxonomyReader,
+			final FacetsConfig config, final Query query) throws IOException {
+		final @Nullable FacetCountCache facetCountCache = this.facetCountCache;
+		if (facetCountCache != null) {
+			return facetCountCache.count(searcher, taxonomyReader, config, query);
+		}
+		// the manager does not keep scores, this can be changed to a custom manager if
+		// score values are actually needed
+		final FacetsCollector facetsCollector = searcher.search(query, new FacetsCollectorManager());
+
+		return new FastTaxonomyFacetCounts(taxonomyReader, config, facetsCollector);
+	}
+
+	/**
+	 * @see #loadFacets(Query, List)
+	 * @see #loadRangeFacets(Query, List)
+	 */
+	static Facets searchRangeFacets(final IndexSearcher searcher, final TaxonomyReader taxonomyReader,
+			final FacetsConfig config, final Query query, final List<RangeFacet> rangeFacets,
+			final boolean taxonomyCounting) throws IOException {
+		final FacetsCollector facetsCollector = searcher.search(query, new FacetsCollectorManager());
+		final @Nullable Facets taxonomyFacets = taxonomyCounting
+				? new FastTaxonomyFacetCounts(taxonomyReader, config, facetsCollector)
+				: null;
+		return countRanges(facetsCollector, rangeFacets, taxonomyFacets);
+	}
+
+	/**
+	 * @param taxonomyFacets Used for all dimensions not belonging to one of the
+	 *                       given range facets, if not <code>null</code>.
+	 */
+	private static Facets countRanges(final FacetsCollector facetsCollector, final List<RangeFacet> rangeFacets,
+			final @Nullable Facets taxonomyFacets) throws IOException {
+		if (rangeFacets.isEmpty() && taxonomyFacets != null) {
+			return taxonomyFacets;
+		}
+		final Map<String, Facets> rangeCounts = new HashMap<>();
+		for (final RangeFacet rangeFacet : rangeFacets) {
+			if (rangeCounts.put(rangeFacet.getField(), rangeFacet.count(facetsCollector)) != null) {
+				throw new IllegalArgumentException("Multiple range facets for field: " + rangeFacet.getField());
+			}
+		}
+		return taxonomyFacets == null ? new MultiFacets(rangeCounts) : new MultiFacets(rangeCounts, taxonomyFacets);
+	}
+
+	/**
+	 * @see #loadSampledFacets(Query, int)
+	 */
+	static SampledFacets sampleFacets(final IndexSearcher searcher, final TaxonomyReader taxonomyReader,
+			final FacetsConfig config, final Query query, final int sampleSize) throws IOException {
+		final RandomSamplingFacetsCollector facetsCollector = searcher.search(query,
+				RandomSamplingFacetsCollector.createManager(sampleSize, SAMPLING_SEED));
+		int totalHitCount = 0;
+		for (final MatchingDocs matchingDocs : facetsCollector.getOriginalMatchingDocs()) {
+			totalHitCount += matchingDocs.totalHits;
+		}
+		// only reads the ordinals of the sampled documents
+		final Facets sampleFacets = new FastTaxonomyFacetCounts(taxonomyReader, config, facetsCollector);
+		// the collector only sets the rate if it actually sampled
+		final double samplingRate = totalHitCount <= sampleSize ? 1 : facetsCollector.getSamplingRate();
+		return new SampledFacets(sampleFacets, samplingRate, totalHitCount);
+	}
+
+	/**
+	 * @see #loadCounts(Query, List)
+	 */
+	static int[] countAll(final IndexSearcher searcher, final Query base, final List<Query> filters)
+			throws IOException {
+		final int filtersSize = filters.size();
+		final var results = new int[filtersSize];
+		if (filtersSize == 0) {
+			return results;
+		}
+		final Weight baseWeight = searcher.createWeight(searcher.rewrite(base), ScoreMode.COMPLETE_NO_SCORES, 1);
+		final var filterWeights = new Weight[filtersSize];
+		final var conjunctionWeights = new Weight[filtersSize];
+		for (int i = 0; i < filtersSize; i++) {
+			final Query filter = filters.get(i);
+			filterWeights[i] = searcher.createWeight(searcher.rewrite(filter), ScoreMode.COMPLETE_NO_SCORES, 1);
+			final Query conjunction = new BooleanQuery.Builder()
+					.add(base, Occur.FILTER)
+					.add(filter, Occur.FILTER)
+					.build();
+			conjunctionWeights[i] = searcher.createWeight(searcher.rewrite(conjunction),
+					ScoreMode.COMPLETE_NO_SCORES, 1);
+		}
+		final var iterators = new DocIdSetIterator[filtersSize];
+		final var twoPhaseIterators = new TwoPhaseIterator[filtersSize];
+		for (final LeafReaderContext leafReaderContext : searcher.getIndexReader().leaves()) {
+			if (baseWeight.count(leafReaderContext) == 0) {
+				continue;
+			}
+			// the filters whose count could not be derived without iterating
+			int pendingCount = 0;
+			final var pending = new int[filtersSize];
+			for (int i = 0; i < filtersSize; i++) {
+				final int count = conjunctionWeights[i].count(leafReaderContext);
+				if (count == -1) {
+					pending[pendingCount++] = i;
+				} else {
+					results[i] += count;
+				}
+			}
+			if (pendingCount == 0) {
+				continue;
+			}
+			final Scorer baseScorer = baseWeight.scorer(leafReaderContext);
+			if (baseScorer == null) {
+				continue;
+			}
+			int iteratorCount = 0;
+			final var iteratorFilters = new int[pendingCount];
+			for (int j = 0; j < pendingCount; j++) {
+				final int i = pending[j];
+				final Scorer filterScorer = filterWeights[i].scorer(leafReaderContext);
+				if (filterScorer == null) {
+					continue;
+				}
+				// only check the (possibly expensive) match of two-phase iterators on base matches
+				final @Nullable TwoPhaseIterator twoPhaseIterator = filterScorer.twoPhaseIterator();
+				iterators[iteratorCount] = twoPhaseIterator == null ? filterScorer.iterator()
+						: twoPhaseIterator.approximation();
+				twoPhaseIterators[iteratorCount] = twoPhaseIterator;
+				iteratorFilters[iteratorCount] = i;
+				iteratorCount++;
+			}
+			if (iteratorCount == 0) {
+				continue;
+			}
+			final Bits liveDocs = leafReaderContext.reader().getLiveDocs();
+			// already confirms two-phase matches of the base query
+			final DocIdSetIterator baseIterator = baseScorer.iterator();
+			for (int doc = baseIterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = baseIterator.nextDoc()) {
+				if (liveDocs != null && !liveDocs.get(doc)) {
+					continue;
+				}
+				for (int k = 0; k < iteratorCount; k++) {
+					final DocIdSetIterator iterator = iterators[k];
+					int filterDoc = iterator.docID();
+					if (filterDoc < doc) {
+						filterDoc = iterator.advance(doc);
+					}
+					if (filterDoc == doc && (twoPhaseIterators[k] == null || twoPhaseIterators[k].matches())) {
+						results[iteratorFilters[k]]++;
+					}
+				}
+			}
+			Arrays.fill(iterators, null);
+			Arrays.fill(twoPhaseIterators, null);
+		}
+
+		return results;
+	}
+
+	/**
+	 * @see #loadMissingCount(Query, List)
+	 */
+	static int[] countMissing(final IndexSearcher searcher, final Query query, final List<String> fields)
+			throws IOException {
 		final int fieldsSize = fields.size();
 		final var results = new int[fieldsSize];
 		if (fieldsSize == 0) {
 			return results;
 		}
-		
-		return this.manager.read((searcher, taxonomyReader, config) -> {
-			// first search limits result to given query
-			final var queryResBase = new HashSet<Integer>();
-			searcher.search(query, new CheckHits.SetCollector(queryResBase));
-			
-			// shortcut in case if there are no results anyway
-			if (queryResBase.isEmpty()) {
-				Arrays.fill(results, 0);
-				return results;
+		final Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1);
+		for (final LeafReaderContext leafReaderContext : searcher.getIndexReader().leaves()) {
+			final LeafReader leafReader = leafReaderContext.reader();
+			final FixedBitSet matches = collectLiveMatches(weight, leafReaderContext);
+			if (matches == null) {
+				continue;
 			}
-			
-			// if there are results we calculate which of them are missing the given fields
+			final int matchCount = matches.cardinality();
+			final int maxDoc = leafReader.maxDoc();
+			@Nullable FixedBitSet present = null;
+			@Nullable PostingsEnum postingsEnum = null;
 			for (int i = 0; i < fieldsSize; i++) {
-				// second search gets all documents missing the given field, independent from the original query
-				final Set<Integer> missingRes = new HashSet<>();
-				searcher.search(
-						new TermRangeQuery(fields.get(i), null, null, false, false),
-						new CheckHits.SetCollector(missingRes));
-				
-				// compute the intersection of both results and get the resulting count
-				final var queryRes = new HashSet<>(queryResBase);
-				queryRes.removeAll(missingRes);
-				results[i] = queryRes.size();
+				final Terms terms = leafReader.terms(fields.get(i));
+				if (terms == null) {
+					results[i] += matchCount;
+					continue;
+				}
+				// shortcut if every document in the segment has the field set
+				if (terms.getDocCount() == maxDoc) {
+					continue;
+				}
+				if (present == null) {
+					present = new FixedBitSet(maxDoc);
+				} else {
+					present.clear(0, maxDoc);
+				}
+				final TermsEnum termsEnum = terms.iterator();
+				while (termsEnum.next() != null) {
+					postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+					present.or(postingsEnum);
+				}
+				results[i] += matchCount - (int) FixedBitSet.intersectionCount(matches, present);
 			}
-			
-			return results;
-		});
+		}
+
+		return results;
+	}
+
+	/**
+	 * @return The live documents in the given segment matching the weight, or
+	 *         <code>null</code> if there are none.
+	 */
+	private static @Nullable FixedBitSet collectLiveMatches(final Weight weight,
+			final LeafReaderContext leafReaderContext) throws IOException {
+		final Scorer scorer = weight.scorer(leafReaderContext);
+		if (scorer == null) {
+			return null;
+		}
+		final LeafReader leafReader = leafReaderContext.reader();
+		final Bits liveDocs = leafReader.getLiveDocs();
+		final var matches = new FixedBitSet(leafReader.maxDoc());
+		final DocIdSetIterator iterator = scorer.iterator();
+		boolean empty = true;
+		for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+			if (liveDocs == null || liveDocs.get(doc)) {
+				matches.set(doc);
+				empty = false;
+			}
+		}
+		return empty ? null : matches;
+	}
+
+	/**
+	 * Passes all documents matching the given query to the given consumer, as an
+	 * alternative to {@link #loadDocuments(ReadRequest, ReadResponse)} for large
+	 * results.
+	 * <p>
+	 * The matches are visited segment by segment in document ID order, without
+	 * scoring and without collecting them first, hence the memory used does not
+	 * depend on the number of matches. The searcher is held until all documents
+	 * were consumed.
+	 *
+	 * @param fieldsToLoad The stored fields to load into each document.
+	 * @return The number of exported documents.
+	 */
+	public long export(final Query query, final Set<String> fieldsToLoad, final Consumer<Document> consumer)
+			throws IOException {
+		return this.manager.read((searcher, taxonomyReader, config) -> {
+			final Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1);
+			final var exportCount = new long[1];
+			for (final LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+				final BulkScorer bulkScorer = weight.bulkScorer(leaf);
+				if (bulkScorer == null) {
+					continue;
+				}
+				final StoredFields storedFields = leaf.reader().storedFields();
+				bulkScorer.score(new LeafCollector() {
+					@Override
+					public void setScorer(final Scorable scorer) {
+						// scores are not needed
+					}
+
+					@Override
+					public void collect(final int doc) throws IOException {
+						consumer.accept(storedFields.document(doc, fieldsToLoad));
+						exportCount[0]++;
+					}
+				}, leaf.reader().getLiveDocs());
+			}
+			return Long.valueOf(exportCount[0]);
+		}).longValue();
+	}
+
+	/**
+	 * Like {@link #export(Query, Set, Consumer)}, but publishes the documents to
+	 * subscribers with back-pressure: the export of a subscriber pauses while the
+	 * given number of documents is buffered but not requested by it.
+	 * <p>
+	 * Each subscriber triggers its own export, executed on a thread started for
+	 * it. The export stops when the subscription is cancelled. The documents are
+	 * delivered to the subscriber via the given executor, which is not blocked by
+	 * the export, hence any executor can be used.
+	 * <p>
+	 * The searcher, and with it the reader of the index at the time of the
+	 * subscription, is held until the export completed or was cancelled. A slow
+	 * subscriber therefore keeps an outdated reader and the files of its segments
+	 * open for the whole export, even if the index was refreshed in the meantime.
+	 */
+	public Flow.Publisher<Document> exportPublisher(final Query query, final Set<String> fieldsToLoad,
+			final Executor executor, final int bufferCapacity) {
+		return subscriber -> {
+			final var publisher = new SubmissionPublisher<Document>(executor, bufferCapacity);
+			publisher.subscribe(subscriber);
+			// not run on the executor, as a blocked export could prevent the delivery
+			final var exporter = new Thread(() -> {
+				try {
+					export(query, fieldsToLoad, document -> {
+						if (!publisher.hasSubscribers()) {
+							throw new CancellationException();
+						}
+						// blocks while the buffer of the subscriber is full
+						publisher.submit(document);
+					});
+					publisher.close();
+				} catch (final CancellationException e) {
+					publisher.close();
+				} catch (final IOException | RuntimeException e) {
+					publisher.closeExceptionally(e);
+				}
+			}, "lucene-toolbox-export");
+			exporter.setDaemon(true);
+			exporter.start();
+		};
 	}
 
+	/**
+	 * @deprecated Loads all terms of the field into memory, use
+	 *             {@link #getTerms(String, String, String, int, boolean)} instead.
+	 * @return The distinct terms of the given field in the index, sorted.
+	 */
+	@Deprecated
 	public Set<String> getExistingValues(final String field) throws IOException {
 		return this.manager.read((searcher, taxonomyReader, config) -> {
 			final Set<String> termStrings = new LinkedHashSet<>();
-			for (final LeafReaderContext leafReaderContext : searcher.getIndexReader().leaves()) {
-				final Terms terms = leafReaderContext.reader().terms(field);
-				final TermsEnum termsEnum = terms.iterator();
-				for (BytesRef term = termsEnum.term(); term != null; term = termsEnum.next()) {
-					final String termString = term.utf8ToString();
-					termStrings.add(termString);
-				}
+			final Terms terms = MultiTerms.getTerms(searcher.getIndexReader(), field);
+			if (terms == null) {
+				return termStrings;
+			}
+			final TermsEnum termsEnum = terms.iterator();
+			for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+				termStrings.add(term.utf8ToString());
 			}
 			return termStrings;
 		});
 	}
 
+	/**
+	 * Loads a page of the distinct terms of the given field, in the sort order of
+	 * the index (i.e. by their UTF-8 bytes), merged over all segments.
+	 * <p>
+	 * Only the terms of the requested page are decoded. To load the next page,
+	 * pass the last term of the current page as <code>startAfter</code>.
+	 *
+	 * @param field                      The field to load the terms of.
+	 * @param prefix                     Only terms starting with this prefix are
+	 *                                   returned, an empty string for all terms.
+	 * @param startAfter                 Only terms after this one are returned,
+	 *                                   <code>null</code> to start at the first
+	 *                                   term.
+	 * @param pageSize                   The maximum number of terms to return.
+	 * @param documentFrequencyInclusion True to set
+	 *                                   {@link TermEntry#getDocumentFrequency()}.
+	 * @return Empty if the field does not exist.
+	 */
+	public List<TermEntry> getTerms(final String field, final String prefix, final @Nullable String startAfter,
+			final int pageSize, final boolean documentFrequencyInclusion) throws IOException {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be positive, got: " + pageSize);
+		}
+		return this.manager.read((searcher, taxonomyReader, config) -> {
+			final List<TermEntry> entries = new ArrayList<>(Math.min(pageSize, 1024));
+			final Terms terms = MultiTerms.getTerms(searcher.getIndexReader(), field);
+			if (terms == null) {
+				return entries;
+			}
+			final var prefixBytes = new BytesRef(prefix);
+			final @Nullable BytesRef startAfterBytes = startAfter == null ? null : new BytesRef(startAfter);
+			final BytesRef target = startAfterBytes != null && startAfterBytes.compareTo(prefixBytes) > 0
+					? startAfterBytes
+					: prefixBytes;
+			final TermsEnum termsEnum = terms.iterator();
+			final SeekStatus status = termsEnum.seekCeil(target);
+			if (status == SeekStatus.END) {
+				return entries;
+			}
+			BytesRef term = termsEnum.term();
+			// the start term may also be the prefix itself
+			if (startAfterBytes != null && term.bytesEquals(startAfterBytes)) {
+				term = termsEnum.next();
+			}
+			while (term != null && entries.size() < pageSize && StringHelper.startsWith(term, prefixBytes)) {
+				final int documentFrequency = documentFrequencyInclusion ? termsEnum.docFreq() : -1;
+				entries.add(new TermEntry(term.utf8ToString(), documentFrequency));
+				term = termsEnum.next();
+			}
+			return entries;
+		});
+	}
+
 	/**
 	 * @return
 	 * @throws IOException
@@ -263,13 +812,48 @@ public class ReadToolbox {
 			final IntArray children = tr.getParallelTaxonomyArrays().children();
 			final int childrenCount = children.length();
 			final var result = new FacetLabel[childrenCount];
-			for (int i = 0; i < childrenCount; i++) {
-				result[i] = tr.getPath(i);
+			if (childrenCount == 0) {
+				return result;
+			}
+			result[TaxonomyReader.ROOT_ORDINAL] = tr.getPath(TaxonomyReader.ROOT_ORDINAL);
+			// resolve the remaining ordinals in chunks instead of one by one
+			for (int chunkStart = TaxonomyReader.ROOT_ORDINAL + 1; chunkStart < childrenCount;
+					chunkStart += TaxonomyLabelDictionary.CHUNK_SIZE) {
+				final FacetLabel[] paths = TaxonomyLabelDictionary.loadPaths(tr, chunkStart,
+						Math.min(chunkStart + TaxonomyLabelDictionary.CHUNK_SIZE, childrenCount));
+				System.arraycopy(paths, 0, result, chunkStart, paths.length);
 			}
 			return result;
 		});
 	}
 
+	/**
+	 * Provides the labels of all ordinals in the current taxonomy as
+	 * {@link TaxonomyLabelDictionary}, e.g. to resolve the ordinals of
+	 * {@link #getTaxonomyChildren()} without allocating a {@link FacetLabel} per
+	 * ordinal.
+	 * <p>
+	 * The dictionary is built once per taxonomy reader and returned again as long
+	 * as the reader was not refreshed.
+	 */
+	public TaxonomyLabelDictionary getTaxonomyLabelDictionary() throws IOException {
+		return this.manager.read((s, tr, fc) -> {
+			final @Nullable TaxonomyLabelDictionary cached = this.labelDictionary;
+			if (cached != null && cached.isBuiltFrom(tr)) {
+				return cached;
+			}
+			synchronized (this) {
+				final @Nullable TaxonomyLabelDictionary current = this.labelDictionary;
+				if (current != null && current.isBuiltFrom(tr)) {
+					return current;
+				}
+				final var dictionary = TaxonomyLabelDictionary.build(tr);
+				this.labelDictionary = dictionary;
+				return dictionary;
+			}
+		});
+	}
+
 	public IntArray getTaxonomyParents() throws IOException {
 		return this.manager.read((s, tr, fc) -> {
 			return tr.getParallelTaxonomyArrays().parents();
@@ -282,39 +866,331 @@ public class ReadToolbox {
 		});
 	}
 
+	void record(final Query query, final boolean facets) {
+		final @Nullable QueryRecorder queryRecorder = this.queryRecorder;
+		if (queryRecorder != null) {
+			queryRecorder.record(query, facets);
+		}
+	}
+
+	/**
+	 * Executes the given function, but waits for the
+	 * {@link ReadRequest#getRequiredGeneration() required generation} of the given
+	 * request to be visible first, if one is set.
+	 */
+	private <R> R read(final ReadRequest request, final ReadFunction<R> function) throws IOException {
+		final OptionalLong generation = request.getRequiredGeneration();
+		if (generation.isPresent()) {
+			return this.manager.read(function, generation.getAsLong());
+		}
+		return this.manager.read(function);
+	}
+
+	/**
+	 * @return The values besides the query the hits searched for the given request
+	 *         depend on.
+	 */
+	private static List<@Nullable Object> getTopDocsParameters(final ReadRequest request, final Sort sort) {
+		final @Nullable ScoreDoc afterDocument = request.getAfterDocument().orElse(null);
+		// score docs do not implement equals, hence their values are compared
+		final @Nullable Object afterValues = afterDocument == null ? null
+				: Arrays.asList(Integer.valueOf(afterDocument.doc), Float.valueOf(afterDocument.score),
+						afterDocument instanceof FieldDoc ? Arrays.asList(((FieldDoc) afterDocument).fields) : null);
+		return Arrays.asList(sort, Integer.valueOf(request.getMaxHitCount()),
+				Integer.valueOf(request.getTotalHitsThreshold()), Boolean.valueOf(request.getScoreInclusion()),
+				afterValues);
+	}
+
+	/**
+	 * Searches the top hits for the given request, using all slices of the searcher
+	 * concurrently if it was created with an executor.
+	 */
+	private static TopFieldDocs searchTopDocs(final IndexSearcher searcher, final ReadRequest request,
+			final Sort sort) throws IOException {
+		final TopFieldDocs topDocs = searcher.search(request.getQuery(), createTopDocsManager(searcher, request, sort));
+		return populateScores(searcher, request, topDocs);
+	}
+
+	private static TopFieldDocs populateScores(final IndexSearcher searcher, final ReadRequest request,
+			final TopFieldDocs topDocs) throws IOException {
+		if (request.getScoreInclusion()) {
+			TopFieldCollector.populateScores(topDocs.scoreDocs, searcher, request.getQuery());
+		}
+		return topDocs;
+	}
+
+	/**
+	 * Creates a manager collecting the top hits as defined by the given request.
+	 * <p>
+	 * Scores are not set in the collected hits, use
+	 * {@link TopFieldCollector#populateScores(ScoreDoc[], IndexSearcher, Query)}
+	 * if {@link ReadRequest#getScoreInclusion()} is set.
+	 */
+	private static TopFieldCollectorManager createTopDocsManager(final IndexSearcher searcher,
+			final ReadRequest request, final Sort sort) throws IOException {
+		final @Nullable ScoreDoc afterDocument = request.getAfterDocument().orElse(null);
+		if (afterDocument != null && !(afterDocument instanceof FieldDoc)) {
+			throw new IllegalArgumentException("The after document must be a FieldDoc, got: " + afterDocument);
+		}
+		// same capping as done by IndexSearcher, a manager must collect at least one hit
+		final int maxHitCount = Math.min(request.getMaxHitCount(), Math.max(1, searcher.getIndexReader().maxDoc()));
+		return new TopFieldCollectorManager(sort.rewrite(searcher), maxHitCount, (FieldDoc) afterDocument,
+				request.getTotalHitsThreshold());
+	}
+
+	/**
+	 * @param partial True if the search was stopped before all hits were
+	 *                collected, see {@link ReadRequest#getQueryBudget()}.
+	 */
 	private static void fillReceiverWithHits(final IndexSearcher searcher, final TopDocs topDocs,
-			final ReadRequest request, final ReadResponse receiver) throws IOException {
+			final boolean partial, final ReadRequest request, final ReadResponse receiver) throws IOException {
 		final int maxDocumentCount = request.getMaxDocumentCount();
 		final int maxExplanationCount = request.getMaxExplanationCount();
 		final Set<String> fieldsToLoad = request.getDocumentFieldsToLoad();
 		final int maxHitCount = request.getMaxHitCount();
 		final Query query = request.getQuery();
 
-		final int processCount = min(Math.min(topDocs.totalHits.value, maxHitCount),
+		// the total hits may exceed the returned hits, e.g. when paginating
+		final int processCount = Math.min(Math.min(topDocs.scoreDocs.length, maxHitCount),
 				Math.max(maxDocumentCount, maxExplanationCount));
 
 		receiver.setHits(topDocs);
+		receiver.setTotalHitCount(topDocs.totalHits.value,
+				!partial && topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO);
+		receiver.setPartialResult(partial);
 		receiver.setActualDocumentCount(Math.min(processCount, maxDocumentCount));
 		receiver.setActualExplanationCount(Math.min(processCount, maxExplanationCount));
 
-		final StoredFields storedFields = searcher.storedFields();
-		for (int i = 0; i < processCount; i++) {
-			final ScoreDoc scoreDoc = topDocs.scoreDocs[i];
-			final int docId = scoreDoc.doc;
+		final int explanationCount = Math.min(processCount, maxExplanationCount);
+		if (explanationCount > 0) {
+			// a single weight for all hits instead of one per call to IndexSearcher.explain
+			final Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE, 1);
+			if (request.getLazyExplanation()) {
+				receiver.setLazyExplanations(
+						new LazyExplanations(searcher.getIndexReader(), weight, topDocs.scoreDocs, explanationCount));
+			} else {
+				visitInDocIdOrder(searcher, topDocs.scoreDocs, explanationCount, leaf -> (doc, index) -> {
+					final Explanation explanation = weight.explain(leaf, doc);
+					receiver.addExplanation(topDocs.scoreDocs[index], explanation, index);
+				});
+			}
+		}
+
+		final int documentCount = Math.min(processCount, maxDocumentCount);
+		if (isStoredFieldLoading(request)) {
+			// documents are loaded in segment and document ID order, but delivered with their rank
+			visitInDocIdOrder(searcher, topDocs.scoreDocs, documentCount, leaf -> {
+				final StoredFields storedFields = leaf.reader().storedFields();
+				return (doc, index) -> {
+					final Document document = storedFields.document(doc, fieldsToLoad);
+					receiver.addDocument(topDocs.scoreDocs[index], document, index);
+				};
+			});
+		}
+
+		final Set<String> docValuesFieldsToLoad = request.getDocValuesFieldsToLoad();
+		if (!docValuesFieldsToLoad.isEmpty()) {
+			loadColumns(searcher, topDocs.scoreDocs, documentCount, docValuesFieldsToLoad, receiver);
+		}
+	}
+
+	/**
+	 * @return False if only doc values are requested, in which case no
+	 *         {@link Document} instances are passed to the {@link ReadResponse}.
+	 */
+	static boolean isStoredFieldLoading(final ReadRequest request) {
+		return !request.getDocumentFieldsToLoad().isEmpty() || request.getDocValuesFieldsToLoad().isEmpty();
+	}
 
-			if (i < maxExplanationCount) {
-				final Explanation explanation = searcher.explain(query, docId);
-				receiver.addExplanation(scoreDoc, explanation, i);
+	/**
+	 * Loads the doc values of the given fields for the first <code>count</code>
+	 * hits. The hits are visited in document ID order, so that each doc values
+	 * iterator is only advanced forward.
+	 */
+	private static void loadColumns(final IndexSearcher searcher, final ScoreDoc[] scoreDocs, final int count,
+			final Set<String> fields, final ReadResponse receiver) throws IOException {
+		final FieldInfos fieldInfos = FieldInfos.getMergedFieldInfos(searcher.getIndexReader());
+		final var columns = new DocValuesColumn[fields.size()];
+		int columnIndex = 0;
+		for (final String field : fields) {
+			final FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+			final DocValuesType type = fieldInfo == null ? DocValuesType.NONE : fieldInfo.getDocValuesType();
+			if (fieldInfo != null && type == DocValuesType.NONE) {
+				throw new IllegalArgumentException("Field '" + field + "' has no doc values.");
 			}
+			columns[columnIndex++] = new DocValuesColumn(field, Checks.requireNonNull(type), count);
+		}
 
-			if (i < maxDocumentCount) {
-				final Document document = storedFields.document(docId, fieldsToLoad);
-				receiver.addDocument(scoreDoc, document, i);
+		visitInDocIdOrder(searcher, scoreDocs, count, leaf -> {
+			final var leafValueReaders = new DocValuesColumn.LeafValueReader[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				leafValueReaders[i] = columns[i].createLeafValueReader(leaf.reader());
 			}
+			return (doc, index) -> {
+				for (final DocValuesColumn.LeafValueReader leafValueReader : leafValueReaders) {
+					leafValueReader.read(doc, index);
+				}
+			};
+		});
+
+		for (final DocValuesColumn column : columns) {
+			receiver.addColumn(column);
 		}
 	}
 
-	private static int min(final long a, final int b) {
-		return Math.toIntExact(Math.min(a, b));
+	/**
+	 * Visits the first <code>count</code> hits sorted by document ID instead of
+	 * rank, hence each segment is visited once and sequentially, which reduces
+	 * random access when reading per-document data of large result pages.
+	 */
+	private static void visitInDocIdOrder(final IndexSearcher searcher, final ScoreDoc[] scoreDocs, final int count,
+			final LeafVisitor leafVisitor) throws IOException {
+		// document ID in the upper and rank in the lower 32 bits, to sort without boxing
+		final var hits = new long[count];
+		for (int i = 0; i < count; i++) {
+			hits[i] = ((long) scoreDocs[i].doc << Integer.SIZE) | i;
+		}
+		Arrays.sort(hits);
+
+		final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+		@Nullable HitVisitor hitVisitor = null;
+		int leafEnd = 0;
+		int docBase = 0;
+		for (final long hit : hits) {
+			final int docId = (int) (hit >>> Integer.SIZE);
+			if (hitVisitor == null || docId >= leafEnd) {
+				final LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+				docBase = leaf.docBase;
+				leafEnd = docBase + leaf.reader().maxDoc();
+				hitVisitor = leafVisitor.visitLeaf(leaf);
+			}
+			hitVisitor.visitHit(docId - docBase, (int) hit);
+		}
+	}
+
+	@FunctionalInterface
+	private interface LeafVisitor {
+		/**
+		 * @return The visitor for the hits within the given segment.
+		 */
+		HitVisitor visitLeaf(LeafReaderContext leaf) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface HitVisitor {
+		/**
+		 * @param doc   The document ID within the current segment.
+		 * @param index The rank of the hit.
+		 */
+		void visitHit(int doc, int index) throws IOException;
+	}
+
+	/**
+	 * Executes a search on a copy of a searcher, limited by a {@link QueryBudget}.
+	 * <p>
+	 * The copy uses the same executor, slices, similarity and query cache, but
+	 * reads from an {@link ExitableDirectoryReader} and has the budget set as
+	 * {@link IndexSearcher#setTimeout(QueryTimeout) timeout}. The former stops
+	 * e.g. the expansion of wildcard queries by throwing an exception, the latter
+	 * stops collecting hits between segments and scoring windows. In both cases
+	 * the hits collected so far are returned.
+	 */
+	private static final class BudgetedSearch<C extends Collector, T> implements CollectorManager<C, T> {
+		private final CollectorManager<C, T> manager;
+		private final QueryBudget budget;
+		private final List<C> collectors = Collections.synchronizedList(new ArrayList<>());
+		private boolean partial;
+
+		BudgetedSearch(final CollectorManager<C, T> manager, final QueryBudget budget) {
+			this.manager = manager;
+			this.budget = budget;
+		}
+
+		T search(final IndexSearcher searcher, final Query query) throws IOException {
+			IndexReader reader = searcher.getIndexReader();
+			if (reader instanceof DirectoryReader) {
+				// not closed, as that would close the wrapped reader
+				reader = ExitableDirectoryReader.wrap((DirectoryReader) reader, this.budget);
+			}
+			final var budgetedSearcher = new BudgetedIndexSearcher(reader, searcher.getExecutor(),
+					searcher.getSlices());
+			budgetedSearcher.setSimilarity(searcher.getSimilarity());
+			budgetedSearcher.setQueryCache(searcher.getQueryCache());
+			budgetedSearcher.setQueryCachingPolicy(searcher.getQueryCachingPolicy());
+			budgetedSearcher.setTimeout(this.budget);
+			try {
+				final T result = budgetedSearcher.search(query, this);
+				this.partial = budgetedSearcher.timedOut();
+				return result;
+			} catch (final ExitingReaderException e) {
+				this.partial = true;
+				return this.manager.reduce(new ArrayList<>(this.collectors));
+			}
+		}
+
+		/**
+		 * @return True if the budget was exhausted before all hits were collected.
+		 */
+		boolean isPartial() {
+			return this.partial;
+		}
+
+		@Override
+		public C newCollector() throws IOException {
+			final C collector = this.manager.newCollector();
+			this.collectors.add(collector);
+			return collector;
+		}
+
+		@Override
+		public T reduce(final Collection<C> collectors) throws IOException {
+			return this.manager.reduce(collectors);
+		}
+
+		/**
+		 * The segments of the exitable reader stop working once the budget is
+		 * exhausted, hence the matches are mapped to the segments of the given
+		 * reader, which the searched reader was wrapped around.
+		 */
+		static FacetsCollector unwrap(final FacetsCollector facetsCollector, final IndexReader reader) {
+			final List<LeafReaderContext> leaves = reader.leaves();
+			final var unwrapped = new FacetsCollector(facetsCollector.getKeepScores());
+			for (final MatchingDocs matchingDocs : facetsCollector.getMatchingDocs()) {
+				unwrapped.getMatchingDocs().add(new MatchingDocs(leaves.get(matchingDocs.context.ord),
+						matchingDocs.bits, matchingDocs.totalHits, matchingDocs.scores));
+			}
+			return unwrapped;
+		}
+	}
+
+	/**
+	 * Groups the segments of the wrapping reader into the same slices as the
+	 * searcher whose reader was wrapped, so a budgeted search is executed with the
+	 * same parallelism as an unbudgeted one, e.g. with the slicing configured via
+	 * {@link IndexSearcherFactory#setSlicing(int, int)}.
+	 */
+	private static final class BudgetedIndexSearcher extends IndexSearcher {
+		private final LeafSlice[] wrappedSlices;
+
+		BudgetedIndexSearcher(final IndexReader reader, final @Nullable Executor executor,
+				final LeafSlice[] wrappedSlices) {
+			super(reader, executor);
+			this.wrappedSlices = wrappedSlices;
+		}
+
+		@Override
+		protected LeafSlice[] slices(final List<LeafReaderContext> leaves) {
+			// slices are computed lazily, hence the field is already initialized
+			final var slices = new LeafSlice[this.wrappedSlices.length];
+			for (int i = 0; i < slices.length; i++) {
+				final var sliceLeaves = new ArrayList<LeafReaderContext>(this.wrappedSlices[i].leaves.length);
+				for (final LeafReaderContext wrappedLeaf : this.wrappedSlices[i].leaves) {
+					// the wrapping reader has a segment for each segment of the wrapped one
+					sliceLeaves.add(leaves.get(wrappedLeaf.ord));
+				}
+				slices[i] = new LeafSlice(sliceLeaves);
+			}
+			return slices;
+		}
 	}
 }
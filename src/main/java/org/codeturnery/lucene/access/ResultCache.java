@@ -0,0 +1,165 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Caches the results of {@link ReadToolbox#loadCount(Query)},
+ * {@link ReadToolbox#loadFacets(Query)} and the hits searched by
+ * {@link ReadToolbox#loadDocuments(ReadRequest, ReadResponse)}, see
+ * {@link ReadToolbox#setResultCache(ResultCache)}.
+ * <p>
+ * Entries are keyed by the rewritten query, the request parameters affecting
+ * the result and the identity of the index and taxonomy reader they were
+ * computed with. Hence an entry is never returned for a different point-in-time
+ * view of the index. Least recently used entries are evicted once the maximum
+ * number of entries is reached.
+ * <p>
+ * To free the entries of outdated readers as soon as possible, register the
+ * instance via {@link IndexManager#addRefreshListener(ReferenceManager.RefreshListener)}.
+ * It is cleared whenever a reader was refreshed.
+ * <p>
+ * Cached hits and facets are shared between all callers and must not be
+ * modified.
+ */
+public class ResultCache implements ReferenceManager.RefreshListener {
+	private final Map<Key, Object> entries;
+	private long hitCount;
+	private long missCount;
+
+	/**
+	 * @param maxEntries The maximum number of results to keep.
+	 */
+	public ResultCache(final int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Maximum number of entries must be positive, got: " + maxEntries);
+		}
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Object> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+	}
+
+	@Override
+	public void beforeRefresh() {
+		// entries stay valid until the new reader is available
+	}
+
+	@Override
+	public void afterRefresh(final boolean didRefresh) {
+		if (didRefresh) {
+			clear();
+		}
+	}
+
+	/**
+	 * Returns the cached result or loads and caches it. Results are loaded outside
+	 * of the lock, hence concurrent misses for the same key may load it twice.
+	 *
+	 * @param kind       The kind of result to separate e.g. counts from facets of
+	 *                   the same query.
+	 * @param parameters Further values the result depends on, must implement
+	 *                   {@link Object#equals(Object)} and {@link Object#hashCode()}.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T get(final IndexSearcher searcher, final TaxonomyReader taxonomyReader, final Kind kind,
+			final Query query, final @Nullable Object parameters, final Loader<T> loader) throws IOException {
+		final IndexReader.@Nullable CacheHelper cacheHelper = searcher.getIndexReader().getReaderCacheHelper();
+		if (cacheHelper == null) {
+			// the reader can not be identified reliably
+			return loader.load();
+		}
+		final var key = new Key(kind, searcher.rewrite(query), parameters, cacheHelper.getKey(), taxonomyReader);
+		synchronized (this) {
+			final @Nullable Object value = this.entries.get(key);
+			if (value != null) {
+				this.hitCount++;
+				return (T) value;
+			}
+			this.missCount++;
+		}
+		final T value = loader.load();
+		synchronized (this) {
+			this.entries.put(key, value);
+		}
+		return value;
+	}
+
+	enum Kind {
+		COUNT, FACETS, TOP_DOCS
+	}
+
+	@FunctionalInterface
+	interface Loader<T> {
+		T load() throws IOException;
+	}
+
+	private static final class Key {
+		private final Kind kind;
+		private final Query query;
+		private final @Nullable Object parameters;
+		private final IndexReader.CacheKey readerKey;
+		private final TaxonomyReader taxonomyReader;
+		private final int hashCode;
+
+		Key(final Kind kind, final Query query, final @Nullable Object parameters,
+				final IndexReader.CacheKey readerKey, final TaxonomyReader taxonomyReader) {
+			this.kind = kind;
+			this.query = query;
+			this.parameters = parameters;
+			this.readerKey = readerKey;
+			this.taxonomyReader = taxonomyReader;
+			this.hashCode = Objects.hash(kind, query, parameters, readerKey,
+					Integer.valueOf(System.identityHashCode(taxonomyReader)));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(final @Nullable Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			final var other = (Key) object;
+			// readers are compared by identity, a refreshed reader is a new instance
+			return this.kind == other.kind && this.readerKey == other.readerKey
+					&& this.taxonomyReader == other.taxonomyReader && this.query.equals(other.query)
+					&& Objects.equals(this.parameters, other.parameters);
+		}
+	}
+}
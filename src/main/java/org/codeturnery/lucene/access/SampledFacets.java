@@ -0,0 +1,109 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.RandomSamplingFacetsCollector;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Facet counts estimated from a random sample of the matching documents, see
+ * {@link ReadToolbox#loadSampledFacets(org.apache.lucene.search.Query, int)}.
+ * <p>
+ * The counts of the sample are divided by the {@link #getSamplingRate()
+ * sampling rate}, similar to
+ * {@link RandomSamplingFacetsCollector#amortizeFacetCounts(FacetResult, org.apache.lucene.facet.FacetsConfig, org.apache.lucene.search.IndexSearcher)},
+ * but without consulting the reader again, hence the values can still be
+ * retrieved after the searcher was released. The estimates are capped at the
+ * number of matching documents.
+ */
+public class SampledFacets extends Facets {
+	private final Facets sampleFacets;
+	private final double samplingRate;
+	private final int totalHitCount;
+
+	SampledFacets(final Facets sampleFacets, final double samplingRate, final int totalHitCount) {
+		this.sampleFacets = sampleFacets;
+		this.samplingRate = samplingRate;
+		this.totalHitCount = totalHitCount;
+	}
+
+	/**
+	 * @return The ratio of sampled to matching documents, <code>1</code> if all
+	 *         matching documents were counted, in which case the counts are
+	 *         exact.
+	 */
+	public double getSamplingRate() {
+		return this.samplingRate;
+	}
+
+	/**
+	 * @return The number of documents matching the query, not only the sampled
+	 *         ones.
+	 */
+	public int getTotalHitCount() {
+		return this.totalHitCount;
+	}
+
+	@Override
+	public @Nullable FacetResult getAllChildren(final String dim, final String... path) throws IOException {
+		return amortize(this.sampleFacets.getAllChildren(dim, path));
+	}
+
+	@Override
+	public @Nullable FacetResult getTopChildren(final int topN, final String dim, final String... path)
+			throws IOException {
+		return amortize(this.sampleFacets.getTopChildren(topN, dim, path));
+	}
+
+	@Override
+	public Number getSpecificValue(final String dim, final String... path) throws IOException {
+		return amortize(this.sampleFacets.getSpecificValue(dim, path));
+	}
+
+	@Override
+	public List<FacetResult> getAllDims(final int topN) throws IOException {
+		return amortize(this.sampleFacets.getAllDims(topN));
+	}
+
+	@Override
+	public List<FacetResult> getTopDims(final int topNDims, final int topNChildren) throws IOException {
+		return amortize(this.sampleFacets.getTopDims(topNDims, topNChildren));
+	}
+
+	private List<FacetResult> amortize(final List<FacetResult> results) {
+		final var amortized = new ArrayList<FacetResult>(results.size());
+		for (final FacetResult result : results) {
+			amortized.add(amortize(result));
+		}
+		return amortized;
+	}
+
+	private @Nullable FacetResult amortize(final @Nullable FacetResult result) {
+		if (result == null || this.samplingRate == 1) {
+			return result;
+		}
+		final var labelValues = new LabelAndValue[result.labelValues.length];
+		for (int i = 0; i < labelValues.length; i++) {
+			final LabelAndValue labelValue = result.labelValues[i];
+			labelValues[i] = new LabelAndValue(labelValue.label, amortize(labelValue.value));
+		}
+		return new FacetResult(result.dim, result.path, amortize(result.value), labelValues, result.childCount);
+	}
+
+	/**
+	 * @param value A count of the sample, negative values are returned as they
+	 *              are, as they have a special meaning.
+	 */
+	private Number amortize(final Number value) {
+		final int count = value.intValue();
+		if (count < 0 || this.samplingRate == 1) {
+			return value;
+		}
+		return Integer.valueOf((int) Math.min(this.totalHitCount, Math.round(count / this.samplingRate)));
+	}
+}
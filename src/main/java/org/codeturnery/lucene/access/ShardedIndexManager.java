@@ -0,0 +1,124 @@
+package org.codeturnery.lucene.access;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.util.IOUtils;
+import org.eclipse.jdt.annotation.Checks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Partitions an index into a fixed number of shards, each one being a separate
+ * index and taxonomy directory pair managed by its own {@link IndexManager}.
+ * <p>
+ * Use a {@link ShardedWriteToolbox} to distribute documents over the shards and
+ * a {@link ShardedReadToolbox} to search all shards and merge the results.
+ * <p>
+ * The number of shards must not change for an existing index, as documents are
+ * assigned to shards by the hash of their ID.
+ */
+public class ShardedIndexManager implements Closeable {
+	private static final Logger LOGGER = Checks.requireNonNull(LoggerFactory.getLogger(ShardedIndexManager.class));
+
+	private final List<IndexManager> shards;
+
+	public ShardedIndexManager(final Path indexPath, final Path taxonomyPath, final FacetsConfig facetsConfig,
+			final int shardCount) throws IOException {
+		this(indexPath, taxonomyPath, facetsConfig, shardCount, IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB);
+	}
+
+	/**
+	 * @param indexPath       The directory to create the index directory of each
+	 *                        shard in.
+	 * @param taxonomyPath    The directory to create the taxonomy directory of each
+	 *                        shard in.
+	 * @param shardCount      The number of shards, must be positive.
+	 * @param ramBufferSizeMb The RAM buffer size used for <strong>each</strong>
+	 *                        shard.
+	 */
+	public ShardedIndexManager(final Path indexPath, final Path taxonomyPath, final FacetsConfig facetsConfig,
+			final int shardCount, final double ramBufferSizeMb) throws IOException {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("At least one shard is needed, got " + shardCount + ".");
+		}
+		final var shards = new ArrayList<IndexManager>(shardCount);
+		try {
+			for (int i = 0; i < shardCount; i++) {
+				final String shardDirectory = "shard-" + i;
+				shards.add(new IndexManager(indexPath.resolve(shardDirectory), taxonomyPath.resolve(shardDirectory),
+						facetsConfig, ramBufferSizeMb));
+			}
+		} catch (final IOException | RuntimeException e) {
+			IOUtils.closeWhileHandlingException(shards);
+			throw e;
+		}
+		this.shards = Checks.requireNonNull(Collections.unmodifiableList(shards));
+
+		LOGGER.debug("Initialized sharded index manager with {} shards.", Integer.valueOf(shardCount));
+	}
+
+	public int getShardCount() {
+		return this.shards.size();
+	}
+
+	/**
+	 * Provides access to a single shard, e.g. to configure it via
+	 * {@link IndexManager#setSearcherFactory(TaxonomySearcherFactory)}.
+	 */
+	public IndexManager getShard(final int shardIndex) {
+		return Checks.requireNonNull(this.shards.get(shardIndex));
+	}
+
+	/**
+	 * @return A {@link WriteExecuter} for each shard, ordered by shard index.
+	 */
+	public List<WriteExecuter> getWriteExecuters(final Analyzer analyzer) throws IOException {
+		final var writeExecuters = new ArrayList<WriteExecuter>(this.shards.size());
+		for (final IndexManager shard : this.shards) {
+			writeExecuters.add(shard.getWriteExecuter(analyzer));
+		}
+		return writeExecuters;
+	}
+
+	/**
+	 * @return A {@link ReadExecuter} for each shard, ordered by shard index.
+	 */
+	public List<ReadExecuter> getReadExecuters() throws IOException {
+		final var readExecuters = new ArrayList<ReadExecuter>(this.shards.size());
+		for (final IndexManager shard : this.shards) {
+			readExecuters.add(shard.getReadExecuter());
+		}
+		return readExecuters;
+	}
+
+	/**
+	 * @return A write-backed {@link ReadExecuter} for each shard, ordered by shard
+	 *         index.
+	 */
+	public List<ReadExecuter> getWriteBackedReaderExecuters(final Analyzer analyzer) throws IOException {
+		final var readExecuters = new ArrayList<ReadExecuter>(this.shards.size());
+		for (final IndexManager shard : this.shards) {
+			readExecuters.add(shard.getWriteBackedReaderExecuter(analyzer));
+		}
+		return readExecuters;
+	}
+
+	public void maybeRefreshAll() throws IOException {
+		for (final IndexManager shard : this.shards) {
+			shard.maybeRefreshAll();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOUtils.close(this.shards);
+	}
+}
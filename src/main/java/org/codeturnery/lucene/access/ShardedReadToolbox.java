@@ -0,0 +1,411 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.eclipse.jdt.annotation.Checks;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Executes read requests on all shards of a {@link ShardedIndexManager} in
+ * parallel and merges the results.
+ * <p>
+ * Hits are merged via {@link TopDocs#merge(Sort, int, TopFieldDocs[])}, with
+ * {@link ScoreDoc#shardIndex} set to the index of the shard they were found
+ * in. To load the next page pass the last hit of the previous page as
+ * {@link ReadRequest#getAfterDocument() after document}, including its
+ * {@link ScoreDoc#shardIndex}.
+ * <p>
+ * Facets are merged by their labels, as the ordinals of the different
+ * taxonomies can not be compared.
+ */
+public class ShardedReadToolbox {
+	private final List<ReadToolbox> shards;
+	private final Executor executor;
+
+	/**
+	 * @param readExecuters One executer for each shard, ordered by shard index.
+	 * @param executor      Used to search the shards in parallel. Will
+	 *                      <strong>not</strong> be shut down by this instance.
+	 */
+	public ShardedReadToolbox(final List<ReadExecuter> readExecuters, final Executor executor) {
+		if (readExecuters.isEmpty()) {
+			throw new IllegalArgumentException("At least one shard is needed.");
+		}
+		final var shards = new ArrayList<ReadToolbox>(readExecuters.size());
+		for (final ReadExecuter readExecuter : readExecuters) {
+			shards.add(new ReadToolbox(readExecuter));
+		}
+		this.shards = shards;
+		this.executor = executor;
+	}
+
+	public <R extends ReadResponse> void loadDocuments(final ReadRequest request, final R receiver)
+			throws IOException {
+		final List<PojoReadResponse> shardResponses = fanOut((shardIndex, shard) -> {
+			final var response = new PojoReadResponse();
+			shard.loadDocuments(new ShardReadRequest(request, shardIndex), response);
+			return response;
+		});
+		fillReceiverWithMergedHits(shardResponses, request, receiver);
+	}
+
+	public <R extends ReadResponse> void loadDocumentsAndFacets(final ReadRequest request, final R receiver)
+			throws IOException {
+		final List<PojoReadResponse> shardResponses = fanOut((shardIndex, shard) -> {
+			final var response = new PojoReadResponse();
+			shard.loadDocumentsAndFacets(new ShardReadRequest(request, shardIndex), response);
+			return response;
+		});
+		final var shardFacets = new ArrayList<Facets>(shardResponses.size());
+		for (final PojoReadResponse shardResponse : shardResponses) {
+			shardFacets.add(shardResponse.getFacets());
+		}
+		receiver.setFacets(new MergedFacets(shardFacets));
+		fillReceiverWithMergedHits(shardResponses, request, receiver);
+	}
+
+	public Facets loadFacets(final Query query) throws IOException {
+		return new MergedFacets(fanOut((shardIndex, shard) -> shard.loadFacets(query)));
+	}
+
+	/**
+	 * @see ReadToolbox#loadFacets(Query, List)
+	 */
+	public Facets loadFacets(final Query query, final List<RangeFacet> rangeFacets) throws IOException {
+		return new MergedFacets(fanOut((shardIndex, shard) -> shard.loadFacets(query, rangeFacets)));
+	}
+
+	public Integer loadCount(final Query query) throws IOException {
+		int count = 0;
+		for (final Integer shardCount : fanOut((shardIndex, shard) -> shard.loadCount(query))) {
+			count += shardCount.intValue();
+		}
+		return Integer.valueOf(count);
+	}
+
+	/**
+	 * @see ReadToolbox#loadCounts(Query, List)
+	 */
+	public int[] loadCounts(final Query base, final List<Query> filters) throws IOException {
+		final var counts = new int[filters.size()];
+		for (final int[] shardCounts : fanOut((shardIndex, shard) -> shard.loadCounts(base, filters))) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += shardCounts[i];
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * @see ReadToolbox#getFacetResult(Query, String, int)
+	 */
+	public Optional<FacetResult> getFacetResult(final Query query, final String dimension, final int topN)
+			throws IOException {
+		final Facets facets = loadFacets(query);
+		return Optional.ofNullable(facets.getTopChildren(topN, dimension));
+	}
+
+	public List<FacetResult> getFacetResultList(final Query query, final int topN) throws IOException {
+		return loadFacets(query).getAllDims(topN);
+	}
+
+	public int getDocumentCount() throws IOException {
+		int count = 0;
+		for (final Integer shardCount : fanOut((shardIndex, shard) -> Integer.valueOf(shard.getDocumentCount()))) {
+			count += shardCount.intValue();
+		}
+		return count;
+	}
+
+	private static void fillReceiverWithMergedHits(final List<PojoReadResponse> shardResponses,
+			final ReadRequest request, final ReadResponse receiver) {
+		final int shardCount = shardResponses.size();
+		final var shardHits = new TopFieldDocs[shardCount];
+		// position of each hit within the response of its shard
+		final Map<Long, Integer> positions = new HashMap<>();
+		for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+			final TopFieldDocs hits = (TopFieldDocs) shardResponses.get(shardIndex).getHits();
+			for (int position = 0; position < hits.scoreDocs.length; position++) {
+				final ScoreDoc scoreDoc = hits.scoreDocs[position];
+				scoreDoc.shardIndex = shardIndex;
+				positions.put(getHitKey(scoreDoc), Integer.valueOf(position));
+			}
+			shardHits[shardIndex] = hits;
+		}
+		final TopFieldDocs topDocs = TopDocs.merge(request.getSort(), request.getMaxHitCount(), shardHits);
+
+		final int maxDocumentCount = request.getMaxDocumentCount();
+		final int maxExplanationCount = request.getMaxExplanationCount();
+		final int processCount = Math.min(topDocs.scoreDocs.length, Math.max(maxDocumentCount, maxExplanationCount));
+
+		receiver.setHits(topDocs);
+		// a lower bound if the count of any shard was a lower bound
+		boolean partial = false;
+		for (final PojoReadResponse shardResponse : shardResponses) {
+			partial |= shardResponse.getPartialResult();
+		}
+		receiver.setTotalHitCount(topDocs.totalHits.value,
+				!partial && topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO);
+		receiver.setPartialResult(partial);
+		receiver.setActualDocumentCount(Math.min(processCount, maxDocumentCount));
+		receiver.setActualExplanationCount(Math.min(processCount, maxExplanationCount));
+
+		final boolean storedFieldLoading = ReadToolbox.isStoredFieldLoading(request);
+		for (int i = 0; i < processCount; i++) {
+			final ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+			final PojoReadResponse shardResponse = shardResponses.get(scoreDoc.shardIndex);
+			/*
+			 * A hit at a specific position in the merged result was at the same or a lower
+			 * position in its shard result, hence the shard already loaded it.
+			 */
+			final int position = Checks.requireNonNull(positions.get(getHitKey(scoreDoc))).intValue();
+			if (i < maxExplanationCount) {
+				receiver.addExplanation(scoreDoc, shardResponse.getExplanations()[position], i);
+			}
+			if (storedFieldLoading && i < maxDocumentCount) {
+				receiver.addDocument(scoreDoc, shardResponse.getDocuments()[position], i);
+			}
+		}
+
+		final int documentCount = Math.min(processCount, maxDocumentCount);
+		for (final String field : request.getDocValuesFieldsToLoad()) {
+			receiver.addColumn(mergeColumns(Checks.requireNonNull(field), shardResponses, topDocs.scoreDocs,
+					documentCount, positions));
+		}
+	}
+
+	private static DocValuesColumn mergeColumns(final String field, final List<PojoReadResponse> shardResponses,
+			final ScoreDoc[] scoreDocs, final int count, final Map<Long, Integer> positions) {
+		// a field may be missing in some shards
+		DocValuesType type = DocValuesType.NONE;
+		for (final PojoReadResponse shardResponse : shardResponses) {
+			final DocValuesColumn shardColumn = shardResponse.getColumns().get(field);
+			if (shardColumn != null && shardColumn.getType() != DocValuesType.NONE) {
+				type = shardColumn.getType();
+				break;
+			}
+		}
+
+		final var column = new DocValuesColumn(field, Checks.requireNonNull(type), count);
+		for (int i = 0; i < count; i++) {
+			final ScoreDoc scoreDoc = scoreDocs[i];
+			final DocValuesColumn shardColumn = Checks
+					.requireNonNull(shardResponses.get(scoreDoc.shardIndex).getColumns().get(field));
+			final int position = Checks.requireNonNull(positions.get(getHitKey(scoreDoc))).intValue();
+			if (!shardColumn.hasValue(position)) {
+				continue;
+			}
+			if (column.isNumeric()) {
+				column.setLong(i, shardColumn.getLong(position));
+			} else {
+				column.setBytes(i, Checks.requireNonNull(shardColumn.getBytes(position)));
+			}
+		}
+		return column;
+	}
+
+	private static Long getHitKey(final ScoreDoc scoreDoc) {
+		return Long.valueOf(((long) scoreDoc.shardIndex << Integer.SIZE) | Integer.toUnsignedLong(scoreDoc.doc));
+	}
+
+	/**
+	 * Executes the given function for each shard in parallel.
+	 *
+	 * @return The results of the shards, ordered by shard index.
+	 */
+	private <T> List<T> fanOut(final ShardFunction<T> function) throws IOException {
+		final int shardCount = this.shards.size();
+		final var futures = new ArrayList<CompletableFuture<T>>(shardCount);
+		for (int i = 0; i < shardCount; i++) {
+			final int shardIndex = i;
+			final ReadToolbox shard = Checks.requireNonNull(this.shards.get(shardIndex));
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return function.apply(shardIndex, shard);
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, this.executor));
+		}
+
+		// the result is unusable as soon as one shard failed, so skip the shards that
+		// did not start yet
+		for (final CompletableFuture<T> future : futures) {
+			future.whenComplete((result, failure) -> {
+				if (failure != null) {
+					futures.forEach(sibling -> sibling.cancel(false));
+				}
+			});
+		}
+
+		final var results = new ArrayList<T>(shardCount);
+		try {
+			for (final CompletableFuture<T> future : futures) {
+				results.add(future.join());
+			}
+		} catch (final CompletionException | CancellationException e) {
+			final Throwable cause = getFailure(futures, e);
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+		return results;
+	}
+
+	/**
+	 * @return The failure of the shard that caused the siblings to be cancelled,
+	 *         or the cause of the given exception if none is found.
+	 */
+	private static Throwable getFailure(final List<? extends CompletableFuture<?>> futures,
+			final RuntimeException exception) {
+		for (final CompletableFuture<?> future : futures) {
+			if (future.isCompletedExceptionally() && !future.isCancelled()) {
+				try {
+					future.join();
+				} catch (final CompletionException e) {
+					return Checks.requireNonNull(e.getCause());
+				}
+			}
+		}
+		final @Nullable Throwable cause = exception.getCause();
+		return cause == null ? exception : cause;
+	}
+
+	@FunctionalInterface
+	private interface ShardFunction<T> {
+		T apply(int shardIndex, ReadToolbox shard) throws IOException;
+	}
+
+	/**
+	 * Adjusts the {@link ReadRequest#getAfterDocument() after document} of a
+	 * request for a specific shard.
+	 * <p>
+	 * Hits with the same sort values are ordered by shard index first and document
+	 * ID second. Hence a shard before the shard of the after document must skip all
+	 * hits with the same sort values and a shard after it must include them.
+	 */
+	private static class ShardReadRequest implements ReadRequest {
+		private final ReadRequest request;
+		private final @Nullable ScoreDoc afterDocument;
+
+		ShardReadRequest(final ReadRequest request, final int shardIndex) {
+			this.request = request;
+			final @Nullable ScoreDoc afterDocument = request.getAfterDocument().orElse(null);
+			if (afterDocument == null) {
+				this.afterDocument = null;
+			} else if (!(afterDocument instanceof FieldDoc) || afterDocument.shardIndex < 0) {
+				throw new IllegalArgumentException(
+						"The after document must be a FieldDoc loaded from the sharded index, got: " + afterDocument);
+			} else if (afterDocument.shardIndex == shardIndex) {
+				this.afterDocument = afterDocument;
+			} else {
+				final var fieldDoc = (FieldDoc) afterDocument;
+				final int doc = shardIndex < afterDocument.shardIndex ? Integer.MAX_VALUE : -1;
+				this.afterDocument = new FieldDoc(doc, fieldDoc.score, fieldDoc.fields);
+			}
+		}
+
+		@Override
+		public Query getQuery() {
+			return this.request.getQuery();
+		}
+
+		@Override
+		public int getMaxDocumentCount() {
+			return this.request.getMaxDocumentCount();
+		}
+
+		@Override
+		public Set<String> getDocumentFieldsToLoad() {
+			return this.request.getDocumentFieldsToLoad();
+		}
+
+		@Override
+		public Set<String> getDocValuesFieldsToLoad() {
+			return this.request.getDocValuesFieldsToLoad();
+		}
+
+		@Override
+		public Optional<ScoreDoc> getAfterDocument() {
+			return Optional.ofNullable(this.afterDocument);
+		}
+
+		@Override
+		public boolean getScoreInclusion() {
+			return this.request.getScoreInclusion();
+		}
+
+		@Override
+		public int getMaxExplanationCount() {
+			return this.request.getMaxExplanationCount();
+		}
+
+		@Override
+		public boolean getLazyExplanation() {
+			// the handles of different shards can not be merged, hence the explanations are
+			// computed eagerly
+			return false;
+		}
+
+		@Override
+		public int getTotalHitsThreshold() {
+			return this.request.getTotalHitsThreshold();
+		}
+
+		@Override
+		public Sort getSort() {
+			return this.request.getSort();
+		}
+
+		@Override
+		public int getMaxHitCount() {
+			return this.request.getMaxHitCount();
+		}
+
+		@Override
+		public List<RangeFacet> getRangeFacets() {
+			return this.request.getRangeFacets();
+		}
+
+		@Override
+		public Optional<QueryBudget> getQueryBudget() {
+			// shared by all shards, hence cancelling it stops all of them
+			return this.request.getQueryBudget();
+		}
+
+		@Override
+		public OptionalLong getRequiredGeneration() {
+			// the sequence number of one shard is meaningless for the other shards
+			return OptionalLong.empty();
+		}
+	}
+}
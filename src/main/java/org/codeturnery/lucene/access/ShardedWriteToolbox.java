@@ -0,0 +1,158 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.eclipse.jdt.annotation.Checks;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Distributes documents over multiple shards (see {@link ShardedIndexManager})
+ * by the hash of the value of an ID field.
+ * <p>
+ * All other operations are simply executed on each shard.
+ */
+public class ShardedWriteToolbox {
+	private final List<WriteToolbox> shards;
+	private final String idField;
+
+	/**
+	 * @param writeExecuters One executer for each shard, ordered by shard index.
+	 * @param idField        The field whose value decides the shard a document is
+	 *                       written to. Every document must contain it as stored
+	 *                       or indexed string field.
+	 */
+	public ShardedWriteToolbox(final List<WriteExecuter> writeExecuters, final String idField) {
+		if (writeExecuters.isEmpty()) {
+			throw new IllegalArgumentException("At least one shard is needed.");
+		}
+		final var shards = new ArrayList<WriteToolbox>(writeExecuters.size());
+		for (final WriteExecuter writeExecuter : writeExecuters) {
+			shards.add(new WriteToolbox(writeExecuter));
+		}
+		this.shards = shards;
+		this.idField = idField;
+	}
+
+	/**
+	 * Adds the given document to the shard determined by its ID.
+	 *
+	 * @return The sequence number of the operation. Note that it is only
+	 *         meaningful for the shard given by {@link #getShardIndex(Document)}.
+	 * @throws IllegalArgumentException If the document has no value for the ID
+	 *                                  field.
+	 */
+	public long accept(final Document document) throws IOException {
+		return getShard(getShardIndex(document)).accept(document);
+	}
+
+	/**
+	 * Replaces the document with the given ID in the shard determined by that ID.
+	 * See {@link WriteToolbox#upsert(Term, Document)}.
+	 *
+	 * @param id       The value of the ID field. Must be indexed as single
+	 *                 term, e.g. via {@link org.apache.lucene.document.StringField}.
+	 * @param document The document to write. Must contain the given ID.
+	 * @return The sequence number of the operation. Note that it is only
+	 *         meaningful for the shard given by {@link #getShardIndex(String)}.
+	 * @throws IllegalArgumentException If the ID of the document differs from
+	 *                                  the given one.
+	 */
+	public long upsert(final String id, final Document document) throws IOException {
+		if (!id.equals(document.get(this.idField))) {
+			throw new IllegalArgumentException("Document does not contain the ID " + id + ".");
+		}
+		return getShard(getShardIndex(id)).upsert(new Term(this.idField, id), document);
+	}
+
+	/**
+	 * Deletes the documents with the given IDs from the shards determined by those
+	 * IDs. Each affected shard is written only once.
+	 *
+	 * @param ids Values of the ID field.
+	 */
+	public void deleteById(final String... ids) throws IOException {
+		final var termsByShard = new ArrayList<List<Term>>(this.shards.size());
+		for (int i = 0; i < this.shards.size(); i++) {
+			termsByShard.add(new ArrayList<>());
+		}
+		for (final String id : ids) {
+			Checks.requireNonNull(termsByShard.get(getShardIndex(id))).add(new Term(this.idField, id));
+		}
+		for (int i = 0; i < this.shards.size(); i++) {
+			final List<Term> terms = Checks.requireNonNull(termsByShard.get(i));
+			if (!terms.isEmpty()) {
+				getShard(i).deleteById(terms.toArray(new Term[terms.size()]));
+			}
+		}
+	}
+
+	/**
+	 * Deletes all documents matching any of the given queries from every shard, as
+	 * the matching documents may be located in any of them.
+	 */
+	public void deleteByQuery(final Query... queries) throws IOException {
+		for (final WriteToolbox shard : this.shards) {
+			shard.deleteByQuery(queries);
+		}
+	}
+
+	/**
+	 * @return The index of the shard the given document is written to.
+	 * @throws IllegalArgumentException If the document has no value for the ID
+	 *                                  field.
+	 */
+	public int getShardIndex(final Document document) {
+		final @Nullable String id = document.get(this.idField);
+		if (id == null) {
+			throw new IllegalArgumentException("Document has no value for the ID field " + this.idField + ".");
+		}
+		return getShardIndex(id);
+	}
+
+	/**
+	 * @return The index of the shard the document with the given ID is written to.
+	 */
+	public int getShardIndex(final String id) {
+		// String#hashCode is specified and thus stable across JVM instances
+		return Math.floorMod(id.hashCode(), this.shards.size());
+	}
+
+	/**
+	 * Commits the changes in each shard. See {@link WriteToolbox#commit()}.
+	 */
+	public void commit() throws IOException {
+		for (final WriteToolbox shard : this.shards) {
+			shard.commit();
+		}
+	}
+
+	public void initializeIndex() throws IOException {
+		for (final WriteToolbox shard : this.shards) {
+			shard.initializeIndex();
+		}
+	}
+
+	public void merge() throws IOException {
+		for (final WriteToolbox shard : this.shards) {
+			shard.merge();
+		}
+	}
+
+	/**
+	 * Call {@link #commit()} to complete the purge.
+	 */
+	public void purge() throws IOException {
+		for (final WriteToolbox shard : this.shards) {
+			shard.purge();
+		}
+	}
+
+	private WriteToolbox getShard(final int shardIndex) {
+		return Checks.requireNonNull(this.shards.get(shardIndex));
+	}
+}
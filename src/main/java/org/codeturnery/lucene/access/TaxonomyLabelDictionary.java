@@ -0,0 +1,138 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.lucene.facet.taxonomy.FacetLabel;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The labels of all ordinals of a taxonomy, i.e. the last component of the
+ * path of each ordinal, see {@link ReadToolbox#getTaxonomyLabelDictionary()}.
+ * <p>
+ * All labels are stored as UTF-8 bytes in a single array, with a second array
+ * holding the offset of each ordinal. Hence looking up labels via
+ * {@link #getLabel(int, BytesRef)} does not allocate any objects. The
+ * dimension and parent labels of an ordinal can be resolved via the parents
+ * array of the taxonomy, see {@link ReadToolbox#getTaxonomyParents()}.
+ * <p>
+ * An instance reflects the taxonomy reader it was built from. Ordinals added
+ * to the taxonomy afterwards are not contained.
+ */
+public class TaxonomyLabelDictionary {
+	/**
+	 * The number of paths loaded at once from the taxonomy, see
+	 * {@link #loadPaths(TaxonomyReader, int, int)}.
+	 */
+	static final int CHUNK_SIZE = 1024;
+
+	private final WeakReference<TaxonomyReader> taxonomyReader;
+	private final byte[] bytes;
+	private final int[] offsets;
+
+	private TaxonomyLabelDictionary(final TaxonomyReader taxonomyReader, final byte[] bytes, final int[] offsets) {
+		this.taxonomyReader = new WeakReference<>(taxonomyReader);
+		this.bytes = bytes;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Loads the labels of all ordinals of the given taxonomy in chunks via
+	 * {@link TaxonomyReader#getBulkPath(int...)}.
+	 */
+	public static TaxonomyLabelDictionary build(final TaxonomyReader taxonomyReader) throws IOException {
+		final int size = taxonomyReader.getSize();
+		final var offsets = new int[size + 1];
+		byte[] bytes = new byte[Math.max(16, size * 8)];
+		int length = 0;
+		// the root ordinal has an empty path, hence an empty label
+		for (int chunkStart = TaxonomyReader.ROOT_ORDINAL + 1; chunkStart < size; chunkStart += CHUNK_SIZE) {
+			final FacetLabel[] paths = loadPaths(taxonomyReader, chunkStart,
+					Math.min(chunkStart + CHUNK_SIZE, size));
+			for (int i = 0; i < paths.length; i++) {
+				final FacetLabel path = paths[i];
+				final byte[] label = path.length == 0 ? new byte[0]
+						: path.components[path.length - 1].getBytes(StandardCharsets.UTF_8);
+				if (length + label.length < 0) {
+					throw new IllegalStateException("Taxonomy labels exceed 2 GB.");
+				}
+				bytes = ArrayUtil.grow(bytes, length + label.length);
+				System.arraycopy(label, 0, bytes, length, label.length);
+				length += label.length;
+				offsets[chunkStart + i + 1] = length;
+			}
+		}
+		return new TaxonomyLabelDictionary(taxonomyReader, ArrayUtil.copyOfSubArray(bytes, 0, length), offsets);
+	}
+
+	/**
+	 * Loads the paths of consecutive ordinals at once via
+	 * {@link TaxonomyReader#getBulkPath(int...)}, instead of one by one. Callers
+	 * should limit the range to {@link #CHUNK_SIZE} ordinals.
+	 *
+	 * @param from The first ordinal, inclusive.
+	 * @param to   The last ordinal, exclusive.
+	 * @return The path of each ordinal, at the index of the ordinal minus
+	 *         <code>from</code>.
+	 */
+	static FacetLabel[] loadPaths(final TaxonomyReader taxonomyReader, final int from, final int to)
+			throws IOException {
+		final var ordinals = new int[to - from];
+		for (int i = 0; i < ordinals.length; i++) {
+			ordinals[i] = from + i;
+		}
+		return taxonomyReader.getBulkPath(ordinals);
+	}
+
+	/**
+	 * @return The number of ordinals, including the root ordinal.
+	 */
+	public int size() {
+		return this.offsets.length - 1;
+	}
+
+	/**
+	 * Points the given instance to the UTF-8 bytes of the label of the given
+	 * ordinal, without copying them. The bytes must not be modified.
+	 */
+	public void getLabel(final int ordinal, final BytesRef target) {
+		target.bytes = this.bytes;
+		target.offset = this.offsets[ordinal];
+		target.length = this.offsets[ordinal + 1] - this.offsets[ordinal];
+	}
+
+	public String getLabel(final int ordinal) {
+		final int offset = this.offsets[ordinal];
+		return new String(this.bytes, offset, this.offsets[ordinal + 1] - offset, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Points each of the given instances to the label of the ordinal at the same
+	 * index, see {@link #getLabel(int, BytesRef)}.
+	 */
+	public void getLabels(final int[] ordinals, final BytesRef[] targets) {
+		for (int i = 0; i < ordinals.length; i++) {
+			getLabel(ordinals[i], targets[i]);
+		}
+	}
+
+	public String[] getLabels(final int[] ordinals) {
+		final var labels = new String[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++) {
+			labels[i] = getLabel(ordinals[i]);
+		}
+		return labels;
+	}
+
+	/**
+	 * @return True if this instance was built from the given reader.
+	 */
+	boolean isBuiltFrom(final TaxonomyReader taxonomyReader) {
+		final @Nullable TaxonomyReader builtFrom = this.taxonomyReader.get();
+		return builtFrom == taxonomyReader;
+	}
+}
@@ -0,0 +1,28 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.search.SearcherFactory;
+
+/**
+ * A {@link SearcherFactory} used by the {@link IndexManager} for the searchers
+ * and taxonomy readers it provides to {@link ReadExecuter} functions.
+ * <p>
+ * In addition to the creation of the searchers, subclasses can prepare each
+ * newly opened taxonomy reader via {@link #warmTaxonomyReader(TaxonomyReader)}
+ * before it is published.
+ */
+public class TaxonomySearcherFactory extends SearcherFactory {
+	/**
+	 * Called for each taxonomy reader opened by the searcher manager, before it
+	 * is published. If an exception is thrown the reader is not published.
+	 * <p>
+	 * Does nothing by default.
+	 *
+	 * @param taxonomyReader The newly opened reader.
+	 */
+	public void warmTaxonomyReader(final TaxonomyReader taxonomyReader) throws IOException {
+		// nothing to do by default
+	}
+}
@@ -0,0 +1,33 @@
+package org.codeturnery.lucene.access;
+
+/**
+ * A term of a field, as returned by
+ * {@link ReadToolbox#getTerms(String, String, String, int, boolean)}.
+ */
+public class TermEntry {
+	private final String term;
+	private final int documentFrequency;
+
+	public TermEntry(final String term, final int documentFrequency) {
+		this.term = term;
+		this.documentFrequency = documentFrequency;
+	}
+
+	public String getTerm() {
+		return this.term;
+	}
+
+	/**
+	 * @return The number of documents containing the term, including deleted
+	 *         documents not merged away yet, or <code>-1</code> if it was not
+	 *         requested.
+	 */
+	public int getDocumentFrequency() {
+		return this.documentFrequency;
+	}
+
+	@Override
+	public String toString() {
+		return this.documentFrequency < 0 ? this.term : this.term + " (" + this.documentFrequency + ")";
+	}
+}
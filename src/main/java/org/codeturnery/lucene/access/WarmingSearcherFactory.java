@@ -0,0 +1,214 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.FacetsConfig.DimConfig;
+import org.apache.lucene.facet.taxonomy.ParallelTaxonomyArrays;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.eclipse.jdt.annotation.Checks;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warms each newly opened searcher by replaying recently executed queries on
+ * it, before the searcher is published by the searcher manager.
+ * <p>
+ * Register this instance as {@link QueryRecorder} in the {@link ReadToolbox}
+ * instances reading the index (see
+ * {@link ReadToolbox#setQueryRecorder(QueryRecorder)}) and set it in the
+ * {@link IndexManager} via
+ * {@link IndexManager#setSearcherFactory(TaxonomySearcherFactory)}.
+ * <p>
+ * Queries executed for facets are replayed by collecting their hits and reading
+ * the facet ordinals of them, which loads the same index structures as counting
+ * the facets would. Additionally the parent, children and sibling arrays of
+ * each newly opened taxonomy reader, which are needed to resolve facet results,
+ * are loaded before the reader is published.
+ */
+public class WarmingSearcherFactory extends TaxonomySearcherFactory implements QueryRecorder {
+	private static final Logger LOGGER = Checks.requireNonNull(LoggerFactory.getLogger(WarmingSearcherFactory.class));
+	/**
+	 * The number of hits to collect when replaying queries not executed for
+	 * facets.
+	 */
+	private static final int WARMING_HIT_COUNT = 10;
+
+	private final TaxonomySearcherFactory searcherFactory;
+	private final Set<String> facetIndexFields;
+	private final Duration timeBudget;
+	/**
+	 * The recently executed queries, the least recently executed first. The value
+	 * is <code>true</code> if facets were counted for the query.
+	 */
+	private final Map<Query, Boolean> recordedQueries;
+	private final AtomicLong warmingCount = new AtomicLong();
+	private final AtomicLong taxonomyWarmingCount = new AtomicLong();
+	private volatile long lastWarmingNanos;
+	private volatile int lastWarmedQueryCount;
+
+	/**
+	 * @param searcherFactory    The factory creating the searchers to warm, e.g. an
+	 *                           {@link IndexSearcherFactory}.
+	 * @param facetsConfig       Used to determine the facet fields to warm.
+	 * @param maxRecordedQueries The maximum number of distinct queries to keep for
+	 *                           replaying. If exceeded the least recently
+	 *                           executed query is dropped.
+	 * @param timeBudget         No more queries will be replayed after this time
+	 *                           elapsed during the warming of a single searcher.
+	 */
+	public WarmingSearcherFactory(final TaxonomySearcherFactory searcherFactory, final FacetsConfig facetsConfig,
+			final int maxRecordedQueries, final Duration timeBudget) {
+		this.searcherFactory = searcherFactory;
+		this.timeBudget = timeBudget;
+		final Set<String> facetIndexFields = new HashSet<>();
+		facetIndexFields.add(FacetsConfig.DEFAULT_INDEX_FIELD_NAME);
+		for (final DimConfig dimConfig : facetsConfig.getDimConfigs().values()) {
+			facetIndexFields.add(dimConfig.indexFieldName);
+		}
+		this.facetIndexFields = facetIndexFields;
+		this.recordedQueries = new LinkedHashMap<>(maxRecordedQueries, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Query, Boolean> eldest) {
+				return size() > maxRecordedQueries;
+			}
+		};
+	}
+
+	@Override
+	public void record(final Query query, final boolean facets) {
+		synchronized (this.recordedQueries) {
+			final @Nullable Boolean previous = this.recordedQueries.get(query);
+			final boolean replayFacets = facets || (previous != null && previous.booleanValue());
+			this.recordedQueries.put(query, Boolean.valueOf(replayFacets));
+		}
+	}
+
+	@Override
+	public IndexSearcher newSearcher(final IndexReader reader, final @Nullable IndexReader previousReader)
+			throws IOException {
+		final IndexSearcher searcher = this.searcherFactory.newSearcher(reader, previousReader);
+		warm(searcher);
+		return searcher;
+	}
+
+	/**
+	 * @return The number of searchers warmed so far.
+	 */
+	public long getWarmingCount() {
+		return this.warmingCount.get();
+	}
+
+	/**
+	 * @return The number of taxonomy readers warmed so far.
+	 */
+	public long getTaxonomyWarmingCount() {
+		return this.taxonomyWarmingCount.get();
+	}
+
+	/**
+	 * @return The time the warming of the most recent searcher took.
+	 */
+	public Duration getLastWarmingDuration() {
+		return Checks.requireNonNull(Duration.ofNanos(this.lastWarmingNanos));
+	}
+
+	/**
+	 * @return The number of queries replayed for the most recent searcher. Lower
+	 *         than the number of recorded queries if the time budget ran out.
+	 */
+	public int getLastWarmedQueryCount() {
+		return this.lastWarmedQueryCount;
+	}
+
+	/**
+	 * Loads the arrays describing the taxonomy tree, which are otherwise loaded
+	 * lazily by the first request resolving facet results.
+	 */
+	@Override
+	public void warmTaxonomyReader(final TaxonomyReader taxonomyReader) throws IOException {
+		this.searcherFactory.warmTaxonomyReader(taxonomyReader);
+		final long start = System.nanoTime();
+		final ParallelTaxonomyArrays arrays = taxonomyReader.getParallelTaxonomyArrays();
+		// the children and siblings are computed on their first access
+		arrays.children();
+		arrays.siblings();
+		this.taxonomyWarmingCount.incrementAndGet();
+		LOGGER.debug("Warmed taxonomy with {} ordinals in {}.", Integer.valueOf(arrays.parents().length()),
+				Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	private void warm(final IndexSearcher searcher) throws IOException {
+		final List<Entry<Query, Boolean>> queries;
+		synchronized (this.recordedQueries) {
+			queries = new ArrayList<>(this.recordedQueries.entrySet());
+		}
+		final long start = System.nanoTime();
+		final long budgetNanos = this.timeBudget.toNanos();
+		int warmedQueryCount = 0;
+		// replay the most recently executed queries first
+		for (int i = queries.size() - 1; i >= 0 && System.nanoTime() - start < budgetNanos; i--) {
+			final Entry<Query, Boolean> entry = queries.get(i);
+			try {
+				replay(searcher, Checks.requireNonNull(entry.getKey()), entry.getValue().booleanValue());
+			} catch (final IOException | RuntimeException e) {
+				// a single failing query must not prevent the searcher from being published
+				LOGGER.warn("Failed to replay query for warming: {}", entry.getKey(), e);
+			}
+			warmedQueryCount++;
+		}
+		this.lastWarmingNanos = System.nanoTime() - start;
+		this.lastWarmedQueryCount = warmedQueryCount;
+		this.warmingCount.incrementAndGet();
+		LOGGER.debug("Warmed searcher with {} of {} queries in {}.", Integer.valueOf(warmedQueryCount),
+				Integer.valueOf(queries.size()), getLastWarmingDuration());
+	}
+
+	private void replay(final IndexSearcher searcher, final Query query, final boolean facets) throws IOException {
+		if (!facets) {
+			searcher.search(query, WARMING_HIT_COUNT);
+			return;
+		}
+		final FacetsCollector facetsCollector = searcher.search(query, new FacetsCollectorManager());
+		for (final MatchingDocs matchingDocs : facetsCollector.getMatchingDocs()) {
+			final @Nullable DocIdSetIterator docs = matchingDocs.bits.iterator();
+			if (docs == null) {
+				continue;
+			}
+			final var ordinalValues = new ArrayList<SortedNumericDocValues>(this.facetIndexFields.size());
+			for (final String facetIndexField : this.facetIndexFields) {
+				ordinalValues.add(DocValues.getSortedNumeric(matchingDocs.context.reader(), facetIndexField));
+			}
+			for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+				for (final SortedNumericDocValues ordinals : ordinalValues) {
+					if (ordinals.advanceExact(doc)) {
+						for (int i = ordinals.docValueCount(); i > 0; i--) {
+							ordinals.nextValue();
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package org.codeturnery.lucene.access;
+
+import java.io.IOException;
+
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.util.IOUtils;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Warms the taxonomy reader of each refreshed {@link SearcherAndTaxonomy} via
+ * {@link TaxonomySearcherFactory#warmTaxonomyReader(org.apache.lucene.facet.taxonomy.TaxonomyReader)}
+ * before it is published. The index searcher is created by the factory itself.
+ */
+class WarmingSearcherTaxonomyManager extends SearcherTaxonomyManager {
+	private final TaxonomySearcherFactory searcherFactory;
+
+	WarmingSearcherTaxonomyManager(final IndexWriter writer, final TaxonomySearcherFactory searcherFactory,
+			final DirectoryTaxonomyWriter taxoWriter) throws IOException {
+		super(writer, searcherFactory, taxoWriter);
+		this.searcherFactory = searcherFactory;
+		warmCurrent();
+	}
+
+	WarmingSearcherTaxonomyManager(final IndexReader reader, final DirectoryTaxonomyReader taxoReader,
+			final TaxonomySearcherFactory searcherFactory) throws IOException {
+		super(reader, taxoReader, searcherFactory);
+		this.searcherFactory = searcherFactory;
+		warmCurrent();
+	}
+
+	@Override
+	protected @Nullable SearcherAndTaxonomy refreshIfNeeded(final SearcherAndTaxonomy ref) throws IOException {
+		final @Nullable SearcherAndTaxonomy refreshed = super.refreshIfNeeded(ref);
+		if (refreshed != null && refreshed.taxonomyReader != ref.taxonomyReader) {
+			try {
+				this.searcherFactory.warmTaxonomyReader(refreshed.taxonomyReader);
+			} catch (final IOException | RuntimeException e) {
+				decRef(refreshed);
+				throw e;
+			}
+		}
+		return refreshed;
+	}
+
+	private void warmCurrent() throws IOException {
+		final SearcherAndTaxonomy current = acquire();
+		try {
+			this.searcherFactory.warmTaxonomyReader(current.taxonomyReader);
+		} catch (final IOException | RuntimeException e) {
+			IOUtils.closeWhileHandlingException(this);
+			throw e;
+		} finally {
+			release(current);
+		}
+	}
+}
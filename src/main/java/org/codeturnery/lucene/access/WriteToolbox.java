@@ -2,6 +2,9 @@ package org.codeturnery.lucene.access;
 
 import java.io.IOException;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
 import org.eclipse.jdt.annotation.Checks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,14 +57,100 @@ public class WriteToolbox {
 		});
 	}
 
+	/**
+	 * Adds the given document to the index, building its facet fields first.
+	 * 
+	 * @return The sequence number of the operation. It can be used to wait until
+	 *         the document is visible to a reader, see
+	 *         {@link ReadExecuter#read(ReadExecuter.ReadFunction, long)}.
+	 */
 	public long accept(final Document document) throws IOException {
 		return this.writeManager.writeSingleDocument((indexWriter, taxonomyWriter, facetsConfig) -> {
 			LOGGER.trace("Writing document into index.");
-			// TODO: we expect the caller for now to take care to not add duplicates
+			// the caller must take care to not add duplicates, use upsert otherwise
 			return indexWriter.addDocument(facetsConfig.build(taxonomyWriter, document));
 		});
 	}
 
+	/**
+	 * Replaces all documents containing the given ID term with the given document,
+	 * building its facet fields first. If no document contains the term, the given
+	 * document is simply added.
+	 * 
+	 * @param idTerm   A term unique to the document, e.g. created from a
+	 *                 {@link org.apache.lucene.document.StringField}.
+	 * @param document The document to write. Should contain the ID term itself.
+	 * @return The sequence number of the operation.
+	 */
+	public long upsert(final Term idTerm, final Document document) throws IOException {
+		return this.writeManager.writeSingleDocument((indexWriter, taxonomyWriter, facetsConfig) -> {
+			LOGGER.trace("Updating document in index.");
+			return indexWriter.updateDocument(idTerm, facetsConfig.build(taxonomyWriter, document));
+		});
+	}
+
+	/**
+	 * Deletes all documents containing any of the given terms.
+	 * <p>
+	 * Passing multiple terms at once is cheaper than calling this method for each
+	 * term.
+	 * 
+	 * @return The sequence number of the operation.
+	 */
+	public long deleteById(final Term... idTerms) throws IOException {
+		return this.writeManager.write((indexWriter, taxonomyWriter, facetsConfig) -> {
+			LOGGER.trace("Deleting {} IDs from index.", Integer.valueOf(idTerms.length));
+			return Long.valueOf(indexWriter.deleteDocuments(idTerms));
+		}).longValue();
+	}
+
+	/**
+	 * Deletes all documents matching any of the given queries.
+	 * 
+	 * @return The sequence number of the operation.
+	 */
+	public long deleteByQuery(final Query... queries) throws IOException {
+		return this.writeManager.write((indexWriter, taxonomyWriter, facetsConfig) -> {
+			LOGGER.trace("Deleting documents matching {} queries from index.", Integer.valueOf(queries.length));
+			return Long.valueOf(indexWriter.deleteDocuments(queries));
+		}).longValue();
+	}
+
+	/**
+	 * Changes the value of a numeric doc values field in all documents containing
+	 * the given term, without re-indexing the documents.
+	 * <p>
+	 * The field must have been indexed as
+	 * {@link org.apache.lucene.document.NumericDocValuesField}, see
+	 * {@link org.codeturnery.lucene.document.FieldFactory#createNumericDocValue(String, long)}.
+	 * 
+	 * @return The sequence number of the operation.
+	 */
+	public long updateNumericDocValue(final Term idTerm, final String field, final long value) throws IOException {
+		return this.writeManager.write((indexWriter, taxonomyWriter, facetsConfig) -> {
+			LOGGER.trace("Updating numeric doc value of {}.", field);
+			return Long.valueOf(indexWriter.updateNumericDocValue(idTerm, field, value));
+		}).longValue();
+	}
+
+	/**
+	 * Changes the value of a binary doc values field in all documents containing
+	 * the given term, without re-indexing the documents.
+	 * <p>
+	 * The field must have been indexed as
+	 * {@link org.apache.lucene.document.BinaryDocValuesField}, see
+	 * {@link org.codeturnery.lucene.document.FieldFactory#createBinaryDocValue(String, BytesRef)}.
+	 * 
+	 * @return The sequence number of the operation.
+	 */
+	public long updateBinaryDocValue(final Term idTerm, final String field, final BytesRef value)
+			throws IOException {
+		return this.writeManager.write((indexWriter, taxonomyWriter, facetsConfig) -> {
+			LOGGER.trace("Updating binary doc value of {}.", field);
+			return Long.valueOf(indexWriter.updateBinaryDocValue(idTerm, field, value));
+		}).longValue();
+	}
+
 	/**
 	 * Call {@link #commit()} to complete the purge.
 	 * @return 
@@ -16,6 +16,11 @@
  * <li>Use the {@link org.codeturnery.lucene.access.WriteExecuterImpl} itself to
  * manage the index itself.</li>
  * </ul>
+ * <p>
+ * To partition an index over multiple directories use a
+ * {@link org.codeturnery.lucene.access.ShardedIndexManager} together with a
+ * {@link org.codeturnery.lucene.access.ShardedWriteToolbox} and a
+ * {@link org.codeturnery.lucene.access.ShardedReadToolbox}.
  */
 @org.eclipse.jdt.annotation.NonNullByDefault
 package org.codeturnery.lucene.access;
\ No newline at end of file
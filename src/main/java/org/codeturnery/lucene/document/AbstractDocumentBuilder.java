@@ -8,6 +8,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.IndexableFieldType;
+import org.apache.lucene.util.BytesRef;
 
 /**
  * Helps to fill a {@link Document} to index it into Lucene.
@@ -84,6 +85,22 @@ public class AbstractDocumentBuilder {
 		this.document.add(this.fieldFactory.createIndexedLong(field, value));
 	}
 
+	/**
+	 * @param field
+	 * @param value
+	 */
+	protected void addNumericDocValue(final String field, final long value) {
+		this.document.add(this.fieldFactory.createNumericDocValue(field, value));
+	}
+
+	/**
+	 * @param field
+	 * @param value
+	 */
+	protected void addBinaryDocValue(final String field, final BytesRef value) {
+		this.document.add(this.fieldFactory.createBinaryDocValue(field, value));
+	}
+
 	/**
 	 * @param field
 	 * @param value
@@ -5,9 +5,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.facet.FacetField;
@@ -55,6 +57,24 @@ public class FieldFactory {
 		return new IntPoint(field, value);
 	}
 
+	/**
+	 * Creates at least an {@link IntPoint} instance from the given value.
+	 * <p>
+	 * If <code>facetable</code> is set to true, the return will additionally
+	 * contain a {@link NumericDocValuesField} with the same value, needed to count
+	 * the value in a {@link org.codeturnery.lucene.access.RangeFacet}.
+	 */
+	public IndexableField[] createIndexedInt(String field, int value, boolean facetable) {
+		final IndexableField[] fields = new IndexableField[facetable ? 2 : 1];
+		fields[0] = createIndexedInt(field, value);
+
+		if (facetable) {
+			fields[1] = createNumericDocValue(field, value);
+		}
+
+		return fields;
+	}
+
 	public StoredField createStoredLong(String field, long value) {
 		return new StoredField(field, value);
 	}
@@ -63,6 +83,39 @@ public class FieldFactory {
 		return new LongPoint(field, value);
 	}
 
+	/**
+	 * Like {@link #createIndexedInt(String, int, boolean)}, but with a
+	 * {@link LongPoint} instance.
+	 */
+	public IndexableField[] createIndexedLong(String field, long value, boolean facetable) {
+		final IndexableField[] fields = new IndexableField[facetable ? 2 : 1];
+		fields[0] = createIndexedLong(field, value);
+
+		if (facetable) {
+			fields[1] = createNumericDocValue(field, value);
+		}
+
+		return fields;
+	}
+
+	/**
+	 * Returns a {@link NumericDocValuesField}. Its value can be changed without
+	 * re-indexing the document, see
+	 * {@link org.codeturnery.lucene.access.WriteToolbox#updateNumericDocValue}.
+	 */
+	public NumericDocValuesField createNumericDocValue(String field, long value) {
+		return new NumericDocValuesField(field, value);
+	}
+
+	/**
+	 * Returns a {@link BinaryDocValuesField}. Its value can be changed without
+	 * re-indexing the document, see
+	 * {@link org.codeturnery.lucene.access.WriteToolbox#updateBinaryDocValue}.
+	 */
+	public BinaryDocValuesField createBinaryDocValue(String field, BytesRef value) {
+		return new BinaryDocValuesField(field, value);
+	}
+
 	/**
 	 * Creates {@link StringField#TYPE_STORED stored} {@link Field} instance
 	 * containing the string <code>1</code> if the given boolean is true and the
@@ -2,11 +2,11 @@ package org.codeturnery.lucene.experimental;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -21,8 +21,6 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.IOUtils;
-import org.codeturnery.lucene.access.PojoReadRequest;
-import org.codeturnery.lucene.access.PojoReadResponse;
 import org.codeturnery.lucene.access.ReadToolbox;
 import org.codeturnery.lucene.query.QueryFactory;
 import org.codeturnery.lucene.query.TermConjunction;
@@ -76,14 +74,10 @@ public class Snippets {
 		// more field names
 		// ...
 		
-		final var readRequest = new PojoReadRequest();
-		readRequest.setQuery(query);
-		readRequest.setMaxDocumentCount(Integer.MAX_VALUE);
-		readRequest.setDocumentFieldsToLoad(fields);
-		final var response = new PojoReadResponse();
-		readToolbox.loadDocuments(readRequest, response);
-		final Document[] result = response.getDocuments();
-		final TreeNode<CharSequence, Document> insertionSortedNode = grouper.apply(Arrays.asList(result));
+		// no top hits are collected, as all documents are needed anyway
+		final List<Document> result = new ArrayList<>();
+		readToolbox.export(query, fields, result::add);
+		final TreeNode<CharSequence, Document> insertionSortedNode = grouper.apply(result);
 		// return sorter.apply(); TODO: grouping and sorting should only happen for
 		// nodes actually used
 		return insertionSortedNode;
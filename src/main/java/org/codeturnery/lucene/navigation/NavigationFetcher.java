@@ -1,11 +1,17 @@
 package org.codeturnery.lucene.navigation;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.search.Query;
 
 import org.codeturnery.annotations.NonNegative;
+import org.codeturnery.lucene.access.RangeFacet;
+import org.codeturnery.lucene.access.ReadBatch;
 import org.codeturnery.lucene.access.ReadToolbox;
 import org.codeturnery.lucene.navigation.LazyFacetTree.LazyFacetTreeItem;
 import org.codeturnery.lucene.query.QueryFactory;
@@ -33,6 +39,37 @@ public class NavigationFetcher {
 				this.queryFactory.createMissingQuery(item.getQuery(), this.usedFieldsField, item.getDimension()));
 	}
 
+	/**
+	 * Like {@link #getMissingCount(LazyFacetTreeItem)} for multiple items, but
+	 * counts all of them in a single pass over the index via
+	 * {@link ReadToolbox#loadCounts(Query, List)}.
+	 * 
+	 * @param items
+	 * @return The count for each item, in the order of the given list.
+	 * @throws IOException
+	 */
+	public int[] getMissingCounts(final List<LazyFacetTreeItem> items) throws IOException {
+		final var filters = new ArrayList<Query>(items.size());
+		for (final LazyFacetTreeItem item : items) {
+			filters.add(this.queryFactory.createMissingQuery(item.getQuery(), this.usedFieldsField,
+					item.getDimension()));
+		}
+		return this.readToolbox.loadCounts(this.queryFactory.createMatchAllQuery(), filters);
+	}
+
+	/**
+	 * Like {@link #getMissingCount(LazyFacetTreeItem)}, but only registers the
+	 * count in the given batch, to load it together with other reads.
+	 * 
+	 * @param batch
+	 * @param item
+	 * @return Completed by {@link ReadBatch#execute()}.
+	 */
+	public CompletableFuture<Integer> getMissingCount(final ReadBatch batch, final LazyFacetTreeItem item) {
+		return batch.loadCount(
+				this.queryFactory.createMissingQuery(item.getQuery(), this.usedFieldsField, item.getDimension()));
+	}
+
 	/**
 	 * Loads the backing facet of the given instance from Lucene.
 	 * <p>
@@ -52,4 +89,33 @@ public class NavigationFetcher {
 		return this.readToolbox.getFacetResult(item.getQuery(), item.getDimension(), maxHits);
 	}
 
+	/**
+	 * Counts the values of the given numeric field in the documents matching the
+	 * selections of the given item, e.g. the buckets of a price histogram, in a
+	 * single pass.
+	 * 
+	 * @param item
+	 * @param rangeFacet
+	 * @return The count of each range, in the order the ranges were defined.
+	 * @throws IOException
+	 */
+	public FacetResult getRangeFacet(final LazyFacetTreeItem item, final RangeFacet rangeFacet) throws IOException {
+		return this.readToolbox.loadRangeFacets(item.getQuery(), List.of(rangeFacet))
+				.getAllChildren(rangeFacet.getField());
+	}
+
+	/**
+	 * Like {@link #getFacet(LazyFacetTreeItem, int)}, but only registers the facet
+	 * in the given batch, to load it together with other reads.
+	 * 
+	 * @param batch
+	 * @param item
+	 * @param maxHits
+	 * @return Completed by {@link ReadBatch#execute()}.
+	 */
+	public CompletableFuture<Optional<FacetResult>> getFacet(final ReadBatch batch, final LazyFacetTreeItem item,
+			final int maxHits) {
+		return batch.getFacetResult(item.getQuery(), item.getDimension(), maxHits);
+	}
+
 }
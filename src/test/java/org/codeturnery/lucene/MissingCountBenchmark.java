@@ -0,0 +1,100 @@
+package org.codeturnery.lucene;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.facet.FacetField;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.IOUtils;
+import org.codeturnery.lucene.access.IndexManager;
+import org.codeturnery.lucene.access.ReadToolbox;
+import org.codeturnery.lucene.access.WriteToolbox;
+import org.codeturnery.lucene.query.QueryFactory;
+
+/**
+ * Compares {@link ReadToolbox#loadMissingCount(Query, List)} with counting
+ * the hits of {@link QueryFactory#createMissingQuery(Query, String, String...)}
+ * for each field. Not executed as part of the tests, run the main method
+ * manually with the number of documents as optional argument.
+ */
+@SuppressWarnings("null")
+public class MissingCountBenchmark {
+	private static final int ITERATIONS = 20;
+	private static final List<String> FIELDS = Arrays.asList(TestIndex.CATEGORY_DIMENSION,
+			TestIndex.COLOR_DIMENSION, TestIndex.NAME_DIMENSION);
+
+	public static void main(final String[] args) throws IOException {
+		final int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		final Path directory = Files.createTempDirectory("missing-count-benchmark");
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = new IndexManager(directory.resolve("index"),
+						directory.resolve("taxonomy"), TestIndex.getFacetsConfig());) {
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzerSupplier.get()));
+			final var random = new Random(42);
+			for (int i = 0; i < documentCount; i++) {
+				writeToolbox.accept(createDocument(random));
+			}
+			writeToolbox.commit();
+
+			final var readToolbox = new ReadToolbox(indexManager.getReadExecuter());
+			final var queryFactory = new QueryFactory();
+			final Query query = new MatchAllDocsQuery();
+			for (int round = 0; round < 2; round++) {
+				// the first round only warms up
+				long start = System.nanoTime();
+				int[] bitSetCounts = null;
+				for (int i = 0; i < ITERATIONS; i++) {
+					bitSetCounts = readToolbox.loadMissingCount(query, FIELDS);
+				}
+				final long bitSetNanos = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				final var queryCounts = new int[FIELDS.size()];
+				for (int i = 0; i < ITERATIONS; i++) {
+					for (int j = 0; j < FIELDS.size(); j++) {
+						queryCounts[j] = readToolbox.loadCount(queryFactory.createMissingQuery(query,
+								TestIndex.USED_FIELDS_DIMENSION, FIELDS.get(j))).intValue();
+					}
+				}
+				final long queryNanos = System.nanoTime() - start;
+
+				System.out.printf("bit sets: %d ms %s, missing queries: %d ms %s%n",
+						Long.valueOf(bitSetNanos / ITERATIONS / 1_000_000), Arrays.toString(bitSetCounts),
+						Long.valueOf(queryNanos / ITERATIONS / 1_000_000), Arrays.toString(queryCounts));
+			}
+		} finally {
+			IOUtils.rm(directory);
+		}
+	}
+
+	private static Document createDocument(final Random random) {
+		final var document = new Document();
+		final String name = "name" + random.nextInt(1000);
+		document.add(new Field(TestIndex.NAME_DIMENSION, name, TestIndex.getExactMatchFieldType()));
+		document.add(new FacetField(TestIndex.NAME_DIMENSION, name));
+		document.add(new Field(TestIndex.USED_FIELDS_DIMENSION, TestIndex.NAME_DIMENSION,
+				TestIndex.getExactMatchFieldType()));
+		if (random.nextBoolean()) {
+			final String category = "category" + random.nextInt(100);
+			document.add(new Field(TestIndex.CATEGORY_DIMENSION, category, TestIndex.getExactMatchFieldType()));
+			document.add(new FacetField(TestIndex.CATEGORY_DIMENSION, category));
+			document.add(new Field(TestIndex.USED_FIELDS_DIMENSION, TestIndex.CATEGORY_DIMENSION,
+					TestIndex.getExactMatchFieldType()));
+		}
+		if (random.nextInt(4) != 0) {
+			final String color = "color" + random.nextInt(10);
+			document.add(new Field(TestIndex.COLOR_DIMENSION, color, TestIndex.getExactMatchFieldType()));
+			document.add(new FacetField(TestIndex.COLOR_DIMENSION, color));
+			document.add(new Field(TestIndex.USED_FIELDS_DIMENSION, TestIndex.COLOR_DIMENSION,
+					TestIndex.getExactMatchFieldType()));
+		}
+		return document;
+	}
+}
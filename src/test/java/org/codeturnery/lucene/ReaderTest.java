@@ -1,15 +1,55 @@
 package org.codeturnery.lucene;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetResult;
 import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.taxonomy.FacetLabel;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.BytesRef;
+import org.codeturnery.lucene.access.FacetFilterCachingPolicy;
+import org.codeturnery.lucene.access.IndexManager;
+import org.codeturnery.lucene.access.IndexSearcherFactory;
+import org.codeturnery.lucene.access.LazyExplanations;
+import org.codeturnery.lucene.access.PojoReadRequest;
+import org.codeturnery.lucene.access.PojoReadResponse;
+import org.codeturnery.lucene.access.QueryBudget;
+import org.codeturnery.lucene.access.ReadBatch;
 import org.codeturnery.lucene.access.ReadExecuter;
 import org.codeturnery.lucene.access.ReadToolbox;
+import org.codeturnery.lucene.access.SampledFacets;
+import org.codeturnery.lucene.access.TaxonomyLabelDictionary;
+import org.codeturnery.lucene.access.TermEntry;
+import org.codeturnery.lucene.access.WriteToolbox;
 import org.codeturnery.lucene.navigation.LazyFacetTree;
 import org.codeturnery.lucene.navigation.NavigationFetcher;
 import org.codeturnery.lucene.navigation.LazyFacetTree.LazyFacetTreeItem;
@@ -62,6 +102,9 @@ public class ReaderTest {
 			// every document has at least one value set in the USED_FIELDS_DIMENSION field, but as
 			// USED_FIELDS_DIMENSION is never set as value itself in this field we get all documents (5).
 			assertEquals(6, missingFieldsCount.intValue());
+			// the bit set based approach must yield the same results as the queries above
+			assertArrayEquals(new int[] { 2, 0, 1 }, reader.loadMissingCount(new MatchAllDocsQuery(),
+					Arrays.asList(TestIndex.CATEGORY_DIMENSION, TestIndex.NAME_DIMENSION, TestIndex.COLOR_DIMENSION)));
 		}
 	}
 	
@@ -93,6 +136,393 @@ public class ReaderTest {
 		}
 	}
 	
+	@Test
+	void testReadBatch() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final var queryFactory = new QueryFactory();
+			final var navigationFetcher = new NavigationFetcher(reader, TestIndex.USED_FIELDS_DIMENSION);
+			final var tree = new LazyFacetTree(MatchAllDocsQuery::new, queryFactory, TestIndex.getFacetsConfig(),
+					TestIndex.USED_FIELDS_DIMENSION);
+			final LazyFacetTreeItem item = tree.createRoot(TestIndex.CATEGORY_DIMENSION);
+
+			final ReadBatch batch = reader.createBatch();
+			batch.setExecutor(ForkJoinPool.commonPool());
+			final var request = new PojoReadRequest();
+			request.setQuery(new MatchAllDocsQuery());
+			request.setMaxHitCount(10);
+			request.setMaxDocumentCount(10);
+			final var documentsAndFacets = batch.loadDocumentsAndFacets(request, new PojoReadResponse());
+			final var count = batch.loadCount(new TermQuery(new Term(TestIndex.CATEGORY_DIMENSION, "mobility")));
+			final var missingCount = navigationFetcher.getMissingCount(batch, item);
+			final var facet = navigationFetcher.getFacet(batch, item, 10);
+			batch.execute();
+
+			assertEquals(6, documentsAndFacets.join().getDocuments().length);
+			assertEquals(3, count.join().intValue());
+			assertEquals(navigationFetcher.getMissingCount(item), missingCount.join());
+			assertEquals(6, facet.join().orElseThrow().childCount);
+			assertThrows(IllegalStateException.class, batch::execute);
+		}
+	}
+
+	@Test
+	void testCounts() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final var queryFactory = new QueryFactory();
+			final var navigationFetcher = new NavigationFetcher(reader, TestIndex.USED_FIELDS_DIMENSION);
+			final var tree = new LazyFacetTree(MatchAllDocsQuery::new, queryFactory, TestIndex.getFacetsConfig(),
+					TestIndex.USED_FIELDS_DIMENSION);
+			final List<Query> filters = Arrays.asList(
+					new TermQuery(new Term(TestIndex.CATEGORY_DIMENSION, "mobility")),
+					new PrefixQuery(new Term(TestIndex.CATEGORY_DIMENSION, "t")),
+					new TermQuery(new Term(TestIndex.CATEGORY_DIMENSION, "unknown")),
+					queryFactory.createMissingQuery(new MatchAllDocsQuery(), TestIndex.USED_FIELDS_DIMENSION,
+							TestIndex.COLOR_DIMENSION));
+			for (final Query base : Arrays.<Query>asList(new MatchAllDocsQuery(),
+					new TermQuery(new Term(TestIndex.CATEGORY_DIMENSION, "technical")))) {
+				final int[] counts = reader.loadCounts(base, filters);
+				assertEquals(filters.size(), counts.length);
+				for (int i = 0; i < counts.length; i++) {
+					assertEquals(reader.loadCount(queryFactory.createAndConjunction(base, filters.get(i))).intValue(),
+							counts[i]);
+				}
+			}
+			final LazyFacetTreeItem categoryItem = tree.createRoot(TestIndex.CATEGORY_DIMENSION);
+			final LazyFacetTreeItem colorItem = tree.createRoot(TestIndex.COLOR_DIMENSION);
+			assertArrayEquals(new int[] { navigationFetcher.getMissingCount(categoryItem).intValue(),
+					navigationFetcher.getMissingCount(colorItem).intValue() },
+					navigationFetcher.getMissingCounts(Arrays.asList(categoryItem, colorItem)));
+		}
+	}
+
+	@Test
+	void testTotalHitsThreshold() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final var request = new PojoReadRequest();
+			request.setQuery(new MatchAllDocsQuery());
+			request.setMaxHitCount(1);
+			final var exactResponse = new PojoReadResponse();
+			reader.loadDocuments(request, exactResponse);
+			assertEquals(6, exactResponse.getTotalHitCount());
+			assertTrue(exactResponse.getTotalHitCountExact());
+
+			request.setTotalHitsThreshold(1);
+			final var response = new PojoReadResponse();
+			reader.loadDocuments(request, response);
+			assertEquals(1, response.getHits().scoreDocs.length);
+			assertFalse(response.getTotalHitCountExact());
+			assertTrue(response.getTotalHitCount() >= 1 && response.getTotalHitCount() <= 6);
+
+			// the facets need all matches, hence the count is still exact
+			final var facetsResponse = new PojoReadResponse();
+			reader.loadDocumentsAndFacets(request, facetsResponse);
+			assertEquals(6, facetsResponse.getTotalHitCount());
+			assertTrue(facetsResponse.getTotalHitCountExact());
+		}
+	}
+
+	@Test
+	void testPagination() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final var request = new PojoReadRequest();
+			request.setQuery(new MatchAllDocsQuery());
+			request.setMaxHitCount(4);
+			request.setMaxDocumentCount(4);
+			request.setDocumentFieldsToLoad(Set.of(TestIndex.NAME_DIMENSION));
+			final var firstPage = new PojoReadResponse();
+			reader.loadDocuments(request, firstPage);
+			assertEquals(4, firstPage.getDocuments().length);
+
+			// the total hit count exceeds the hits left on the last page
+			final ScoreDoc[] firstHits = firstPage.getHits().scoreDocs;
+			request.setStartDocument(firstHits[firstHits.length - 1]);
+			final var secondPage = new PojoReadResponse();
+			reader.loadDocuments(request, secondPage);
+			assertEquals(6, secondPage.getTotalHitCount());
+			assertEquals(2, secondPage.getHits().scoreDocs.length);
+			assertEquals(2, secondPage.getActualDocumentCount());
+
+			final Set<String> names = Arrays.stream(firstPage.getDocuments())
+					.map(document -> document.get(TestIndex.NAME_DIMENSION)).collect(Collectors.toSet());
+			Arrays.stream(secondPage.getDocuments()).map(document -> document.get(TestIndex.NAME_DIMENSION))
+					.forEach(names::add);
+			assertEquals(6, names.size());
+		}
+	}
+
+	@Test
+	void testQueryBudget() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final var request = new PojoReadRequest();
+			request.setQuery(new WildcardQuery(new Term(TestIndex.CATEGORY_DIMENSION, "*o*")));
+			request.setMaxHitCount(10);
+			request.setMaxDocumentCount(10);
+			request.setQueryBudget(new QueryBudget(Duration.ofMinutes(1)));
+			final var response = new PojoReadResponse();
+			reader.loadDocumentsAndFacets(request, response);
+			assertFalse(response.getPartialResult());
+			assertTrue(response.getTotalHitCountExact());
+			assertTrue(response.getHits().scoreDocs.length > 0);
+
+			final var budget = new QueryBudget(Duration.ofMinutes(1));
+			budget.cancel();
+			assertEquals(Duration.ZERO, budget.getRemaining());
+			request.setQueryBudget(budget);
+			final var cancelledResponse = new PojoReadResponse();
+			reader.loadDocuments(request, cancelledResponse);
+			assertTrue(cancelledResponse.getPartialResult());
+			assertFalse(cancelledResponse.getTotalHitCountExact());
+			final var cancelledFacetsResponse = new PojoReadResponse();
+			reader.loadDocumentsAndFacets(request, cancelledFacetsResponse);
+			assertTrue(cancelledFacetsResponse.getPartialResult());
+			assertTrue(cancelledFacetsResponse.getFacets().getAllDims(10).size() <= response.getFacets()
+					.getAllDims(10).size());
+		}
+	}
+
+	@Test
+	void testSampledFacets() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final Query query = new MatchAllDocsQuery();
+			final SampledFacets exact = reader.loadSampledFacets(query, 100);
+			assertEquals(1, exact.getSamplingRate());
+			assertEquals(6, exact.getTotalHitCount());
+			assertEquals(reader.loadFacets(query).getAllDims(10), exact.getAllDims(10));
+
+			final SampledFacets sampled = reader.loadSampledFacets(query, 3);
+			assertTrue(sampled.getSamplingRate() < 1);
+			assertEquals(6, sampled.getTotalHitCount());
+			for (final FacetResult result : sampled.getAllDims(10)) {
+				for (final LabelAndValue labelValue : result.labelValues) {
+					assertTrue(labelValue.value.intValue() <= 6);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testExport() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final Set<String> fields = Collections.singleton(TestIndex.NAME_DIMENSION);
+			final var names = new ArrayList<String>();
+			final long count = reader.export(new MatchAllDocsQuery(), fields,
+					document -> names.add(document.get(TestIndex.NAME_DIMENSION)));
+			assertEquals(6, count);
+			assertEquals(6, names.size());
+
+			// request one document at a time to exercise the back-pressure
+			final var publishedNames = new ArrayList<String>();
+			final var completion = new CompletableFuture<Void>();
+			// a single thread suffices to deliver, the export does not run on it
+			final ExecutorService executor = Executors.newSingleThreadExecutor();
+			reader.exportPublisher(new MatchAllDocsQuery(), fields, executor, 1)
+					.subscribe(new Flow.Subscriber<Document>() {
+						private Flow.Subscription subscription;
+
+						@Override
+						public void onSubscribe(final Flow.Subscription subscription) {
+							this.subscription = subscription;
+							subscription.request(1);
+						}
+
+						@Override
+						public void onNext(final Document document) {
+							publishedNames.add(document.get(TestIndex.NAME_DIMENSION));
+							this.subscription.request(1);
+						}
+
+						@Override
+						public void onError(final Throwable throwable) {
+							completion.completeExceptionally(throwable);
+						}
+
+						@Override
+						public void onComplete() {
+							completion.complete(null);
+						}
+					});
+			try {
+				completion.join();
+			} finally {
+				executor.shutdown();
+			}
+			assertEquals(names, publishedNames);
+		}
+	}
+
+	@Test
+	void testTermPagination() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final List<TermEntry> firstPage = reader.getTerms(TestIndex.CATEGORY_DIMENSION, "", null, 4, true);
+			assertEquals(Arrays.asList("animal", "expansive", "farm", "mobility"),
+					firstPage.stream().map(TermEntry::getTerm).collect(Collectors.toList()));
+			assertEquals(3, firstPage.get(3).getDocumentFrequency());
+			final List<TermEntry> secondPage = reader.getTerms(TestIndex.CATEGORY_DIMENSION, "", "mobility", 4,
+					false);
+			assertEquals(Arrays.asList("public transportation", "technical"),
+					secondPage.stream().map(TermEntry::getTerm).collect(Collectors.toList()));
+			assertEquals(-1, secondPage.get(0).getDocumentFrequency());
+			final List<TermEntry> prefixed = reader.getTerms(TestIndex.COLOR_DIMENSION, "wh", null, 10, false);
+			assertEquals(1, prefixed.size());
+			assertEquals("white", prefixed.get(0).getTerm());
+			// a start term equal to the prefix is skipped as well
+			assertTrue(reader.getTerms(TestIndex.CATEGORY_DIMENSION, "mobility", "mobility", 10, false).isEmpty());
+			final List<TermEntry> firstPrefixedPage = reader.getTerms(TestIndex.NAME_DIMENSION, "c", null, 1, false);
+			assertEquals("car", firstPrefixedPage.get(0).getTerm());
+			final List<TermEntry> lastPrefixedPage = reader.getTerms(TestIndex.NAME_DIMENSION, "c", "car", 1, false);
+			assertEquals(1, lastPrefixedPage.size());
+			assertEquals("chicken", lastPrefixedPage.get(0).getTerm());
+			assertTrue(reader.getTerms(TestIndex.NAME_DIMENSION, "c", "chicken", 1, false).isEmpty());
+			assertTrue(reader.getTerms("UNKNOWN_FIELD", "", null, 10, false).isEmpty());
+		}
+	}
+
+	@Test
+	void testTaxonomyLabelDictionary() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final FacetLabel[] paths = reader.getFacetLabels();
+			final TaxonomyLabelDictionary dictionary = reader.getTaxonomyLabelDictionary();
+			assertSame(dictionary, reader.getTaxonomyLabelDictionary());
+			assertEquals(paths.length, dictionary.size());
+			assertEquals("", dictionary.getLabel(0));
+			final var ordinals = new int[paths.length - 1];
+			for (int i = 1; i < paths.length; i++) {
+				assertEquals(paths[i].components[paths[i].length - 1], dictionary.getLabel(i));
+				ordinals[i - 1] = i;
+			}
+			final String[] labels = dictionary.getLabels(ordinals);
+			assertTrue(Arrays.asList(labels).contains(TestIndex.CATEGORY_DIMENSION));
+			final var target = new BytesRef();
+			dictionary.getLabel(1, target);
+			assertEquals(labels[0], target.utf8ToString());
+		}
+	}
+
+	@Test
+	void testFacetFilterCaching() throws IOException {
+		final var searcherFactory = new IndexSearcherFactory();
+		// cache on all segments, regardless of their size
+		final var queryCache = new LRUQueryCache(16, 1024 * 1024, leaf -> true, Float.POSITIVE_INFINITY);
+		searcherFactory.setQueryCache(queryCache, new FacetFilterCachingPolicy(TestIndex.getFacetsConfig(), 2));
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			luceneIndex.setSearcherFactory(searcherFactory);
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final var queryFactory = new QueryFactory();
+			final var tree = new LazyFacetTree(queryFactory::createMatchAllQuery, queryFactory,
+					TestIndex.getFacetsConfig(), TestIndex.USED_FIELDS_DIMENSION);
+			final Query query = tree.createRoot(TestIndex.CATEGORY_DIMENSION).getQuery(false, "mobility");
+			for (int i = 0; i < 3; i++) {
+				reader.getFacetResult(query, TestIndex.COLOR_DIMENSION, 10);
+			}
+			final var statistics = searcherFactory.getQueryCacheStatistics().orElseThrow();
+			assertTrue(statistics.getHitCount() > 0, statistics.toString());
+		}
+	}
+
+	@Test
+	void testLazyExplanations() throws IOException {
+		try (final var luceneIndex = this.testIndex.getIndexManager();) {
+			final var reader = new ReadToolbox(luceneIndex.getReadExecuter());
+			final var request = new PojoReadRequest();
+			request.setQuery(new TermQuery(new Term(TestIndex.CATEGORY_DIMENSION, "mobility")));
+			request.setMaxHitCount(10);
+			request.setMaxExplanationCount(10);
+			final var eagerResponse = new PojoReadResponse();
+			reader.loadDocuments(request, eagerResponse);
+			assertEquals(3, eagerResponse.getExplanations().length);
+
+			request.setLazyExplanation(true);
+			final var lazyResponse = new PojoReadResponse();
+			reader.loadDocuments(request, lazyResponse);
+			assertNull(lazyResponse.getExplanations());
+			try (final LazyExplanations explanations = lazyResponse.getLazyExplanations().orElseThrow();) {
+				assertEquals(3, explanations.size());
+				assertEquals(eagerResponse.getExplanations()[1], explanations.get(1));
+				// the explanation at index 1 was already computed
+				assertEquals(2, explanations.computeAll(Duration.ofSeconds(10)));
+				assertEquals(eagerResponse.getExplanations()[0], explanations.get(0));
+			}
+		}
+	}
+
+	@Test
+	void testConcurrentSearch(@TempDir final Path directory) throws IOException {
+		final var searcherFactory = new IndexSearcherFactory();
+		searcherFactory.setExecutor(ForkJoinPool.commonPool());
+		// a slice per segment
+		searcherFactory.setSlicing(1, 1);
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var slicedIndex = new IndexManager(directory.resolve("index"), directory.resolve("taxonomy"),
+						TestIndex.getFacetsConfig());
+				final var unslicedIndex = new IndexManager(directory.resolve("index"), directory.resolve("taxonomy"),
+						TestIndex.getFacetsConfig());) {
+			// commit in between to get two segments
+			final var writeToolbox = new WriteToolbox(slicedIndex.getWriteExecuter(analyzerSupplier.get()));
+			final List<Document> fixtures = TestIndex.getFixtures();
+			for (int i = 0; i < fixtures.size(); i++) {
+				writeToolbox.accept(fixtures.get(i));
+				if (i == fixtures.size() / 2) {
+					writeToolbox.commit();
+				}
+			}
+			writeToolbox.commit();
+
+			slicedIndex.setSearcherFactory(searcherFactory);
+			final ReadExecuter slicedExecuter = slicedIndex.getReadExecuter();
+			assertTrue(slicedExecuter.read((searcher, taxonomyReader, config) -> Integer.valueOf(
+					searcher.getSlices().length)).intValue() >= 2);
+			final var slicedReader = new ReadToolbox(slicedExecuter);
+			final var unslicedReader = new ReadToolbox(unslicedIndex.getReadExecuter());
+			for (final Query query : Arrays.<Query>asList(new MatchAllDocsQuery(),
+					new TermQuery(new Term(TestIndex.CATEGORY_DIMENSION, "mobility")))) {
+				final var request = new PojoReadRequest();
+				request.setQuery(query);
+				request.setMaxHitCount(10);
+				request.setMaxDocumentCount(10);
+				request.setScoreInclusion(true);
+				request.setDocumentFieldsToLoad(Collections.singleton(TestIndex.NAME_DIMENSION));
+				final var slicedResponse = new PojoReadResponse();
+				slicedReader.loadDocumentsAndFacets(request, slicedResponse);
+				final var unslicedResponse = new PojoReadResponse();
+				unslicedReader.loadDocumentsAndFacets(request, unslicedResponse);
+
+				assertEquals(unslicedResponse.getHits().totalHits, slicedResponse.getHits().totalHits);
+				final ScoreDoc[] slicedHits = slicedResponse.getHits().scoreDocs;
+				final ScoreDoc[] unslicedHits = unslicedResponse.getHits().scoreDocs;
+				assertEquals(unslicedHits.length, slicedHits.length);
+				for (int i = 0; i < slicedHits.length; i++) {
+					assertEquals(unslicedHits[i].doc, slicedHits[i].doc);
+					assertEquals(unslicedHits[i].score, slicedHits[i].score);
+					assertEquals(unslicedResponse.getDocuments()[i].get(TestIndex.NAME_DIMENSION),
+							slicedResponse.getDocuments()[i].get(TestIndex.NAME_DIMENSION));
+				}
+				assertEquals(unslicedResponse.getFacets().getAllDims(10), slicedResponse.getFacets().getAllDims(10));
+
+				// budgeted searches use the slices of the searcher as well
+				request.setQueryBudget(new QueryBudget(Duration.ofMinutes(1)));
+				final var budgetedResponse = new PojoReadResponse();
+				slicedReader.loadDocumentsAndFacets(request, budgetedResponse);
+				assertFalse(budgetedResponse.getPartialResult());
+				assertEquals(unslicedResponse.getHits().totalHits, budgetedResponse.getHits().totalHits);
+				final ScoreDoc[] budgetedHits = budgetedResponse.getHits().scoreDocs;
+				assertEquals(unslicedHits.length, budgetedHits.length);
+				for (int i = 0; i < budgetedHits.length; i++) {
+					assertEquals(unslicedHits[i].doc, budgetedHits[i].doc);
+				}
+				assertEquals(unslicedResponse.getFacets().getAllDims(10), budgetedResponse.getFacets().getAllDims(10));
+			}
+		}
+	}
+
 	private void compareFacets(LazyFacetTreeItem item, final NavigationFetcher navigationFetcher, int expectedCategoryCount, int expectedMissingCount, LabelAndValue[] expectedLabelAndValues, final String expectedDimension) throws IOException {
 		final var limit = 10;
 		final var maybeFacet = navigationFetcher.getFacet(item, limit);
@@ -0,0 +1,189 @@
+package org.codeturnery.lucene;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.facet.FacetField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.codeturnery.lucene.access.PojoReadRequest;
+import org.codeturnery.lucene.access.PojoReadResponse;
+import org.codeturnery.lucene.access.RangeFacet;
+import org.codeturnery.lucene.access.ShardedIndexManager;
+import org.codeturnery.lucene.access.ShardedReadToolbox;
+import org.codeturnery.lucene.access.ShardedWriteToolbox;
+import org.codeturnery.lucene.document.FieldFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ShardedIndexTest {
+	@Test
+	void testShardedReads(@TempDir final Path directory) throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = new ShardedIndexManager(directory.resolve("index"),
+						directory.resolve("taxonomy"), TestIndex.getFacetsConfig(), 3);) {
+			final var writeToolbox = new ShardedWriteToolbox(indexManager.getWriteExecuters(analyzerSupplier.get()),
+					TestIndex.NAME_DIMENSION);
+			for (final Document fixture : TestIndex.getFixtures()) {
+				writeToolbox.accept(fixture);
+			}
+			writeToolbox.commit();
+
+			final var readToolbox = new ShardedReadToolbox(indexManager.getReadExecuters(), executor);
+			assertEquals(6, readToolbox.getDocumentCount());
+			assertEquals(6, readToolbox.loadCount(new MatchAllDocsQuery()).intValue());
+			final var categories = readToolbox.getFacetResult(new MatchAllDocsQuery(), TestIndex.CATEGORY_DIMENSION, 1)
+					.orElseThrow();
+			assertEquals(6, categories.childCount);
+			assertEquals("mobility", categories.labelValues[0].label);
+			assertEquals(3, categories.labelValues[0].value.intValue());
+
+			// paginate over all documents and ensure every document is returned exactly once
+			final Set<String> names = new HashSet<>();
+			ScoreDoc afterDocument = null;
+			for (int page = 0; page < 3; page++) {
+				final var request = new PojoReadRequest();
+				request.setQuery(new MatchAllDocsQuery());
+				request.setMaxHitCount(2);
+				request.setMaxDocumentCount(2);
+				request.setDocumentFieldsToLoad(Collections.singleton(TestIndex.NAME_DIMENSION));
+				if (afterDocument != null) {
+					request.setStartDocument(afterDocument);
+				}
+				final var response = new PojoReadResponse();
+				readToolbox.loadDocuments(request, response);
+				assertEquals(2, response.getDocuments().length);
+				for (final Document document : response.getDocuments()) {
+					names.add(document.get(TestIndex.NAME_DIMENSION));
+				}
+				afterDocument = response.getHits().scoreDocs[1];
+			}
+			assertEquals(6, names.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testShardedRangeFacets(@TempDir final Path directory) throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = new ShardedIndexManager(directory.resolve("index"),
+						directory.resolve("taxonomy"), TestIndex.getFacetsConfig(), 3);) {
+			final var writeToolbox = new ShardedWriteToolbox(indexManager.getWriteExecuters(analyzerSupplier.get()),
+					TestIndex.NAME_DIMENSION);
+			final var fieldFactory = new FieldFactory();
+			// the later buckets contain more documents, so sorting by count would reverse them
+			final long[] prices = { 5, 15, 16, 25, 26, 27 };
+			final List<Document> fixtures = TestIndex.getFixtures();
+			for (int i = 0; i < fixtures.size(); i++) {
+				final Document fixture = fixtures.get(i);
+				for (final IndexableField field : fieldFactory.createIndexedLong("PRICE", prices[i], true)) {
+					fixture.add(field);
+				}
+				writeToolbox.accept(fixture);
+			}
+			writeToolbox.commit();
+
+			final var readToolbox = new ShardedReadToolbox(indexManager.getReadExecuters(), executor);
+			final Facets facets = readToolbox.loadFacets(new MatchAllDocsQuery(),
+					List.of(RangeFacet.ofHistogram("PRICE", 0, 10, 3)));
+			final FacetResult buckets = facets.getAllChildren("PRICE");
+			assertEquals(List.of("0", "10", "20"),
+					Arrays.stream(buckets.labelValues).map(labelValue -> labelValue.label).collect(Collectors.toList()));
+			assertEquals(List.of(Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(3)),
+					Arrays.stream(buckets.labelValues).map(labelValue -> labelValue.value).collect(Collectors.toList()));
+			assertEquals("20", facets.getTopChildren(1, "PRICE").labelValues[0].label);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testShardedWrites(@TempDir final Path directory) throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = new ShardedIndexManager(directory.resolve("index"),
+						directory.resolve("taxonomy"), TestIndex.getFacetsConfig(), 3);) {
+			final var writeToolbox = new ShardedWriteToolbox(indexManager.getWriteExecuters(analyzerSupplier.get()),
+					TestIndex.NAME_DIMENSION);
+			for (final Document fixture : TestIndex.getFixtures()) {
+				writeToolbox.accept(fixture);
+			}
+			writeToolbox.commit();
+			final var readToolbox = new ShardedReadToolbox(indexManager.getReadExecuters(), executor);
+
+			final var car = new Document();
+			car.add(new Field(TestIndex.NAME_DIMENSION, "car", TestIndex.getExactMatchFieldType()));
+			car.add(new FacetField(TestIndex.NAME_DIMENSION, "car"));
+			car.add(new Field(TestIndex.CATEGORY_DIMENSION, "vehicle", TestIndex.getExactMatchFieldType()));
+			car.add(new FacetField(TestIndex.CATEGORY_DIMENSION, "vehicle"));
+			writeToolbox.upsert("car", car);
+			assertThrows(IllegalArgumentException.class, () -> writeToolbox.upsert("bike", car));
+			writeToolbox.commit();
+			indexManager.maybeRefreshAll();
+			assertEquals(6, readToolbox.getDocumentCount());
+			assertEquals(1, readToolbox.loadCount(new TermQuery(new Term(TestIndex.CATEGORY_DIMENSION, "vehicle")))
+					.intValue());
+
+			writeToolbox.deleteById("chicken", "train", "horse");
+			writeToolbox.commit();
+			indexManager.maybeRefreshAll();
+			assertEquals(3, readToolbox.getDocumentCount());
+
+			writeToolbox.deleteByQuery(new MatchAllDocsQuery());
+			writeToolbox.commit();
+			indexManager.maybeRefreshAll();
+			assertEquals(0, readToolbox.getDocumentCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testShardFailure(@TempDir final Path directory) throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = new ShardedIndexManager(directory.resolve("index"),
+						directory.resolve("taxonomy"), TestIndex.getFacetsConfig(), 3);) {
+			final var writeToolbox = new ShardedWriteToolbox(indexManager.getWriteExecuters(analyzerSupplier.get()),
+					TestIndex.NAME_DIMENSION);
+			for (final Document fixture : TestIndex.getFixtures()) {
+				writeToolbox.accept(fixture);
+			}
+			writeToolbox.commit();
+
+			final var readToolbox = new ShardedReadToolbox(indexManager.getReadExecuters(), executor);
+			final var request = new PojoReadRequest();
+			request.setQuery(new MatchAllDocsQuery());
+			// the facet ordinals are not indexed as sorted doc values, so sorting by them fails
+			request.setMaxHitCount(6);
+			final String facetField = TestIndex.getFacetsConfig().getDimConfig(TestIndex.NAME_DIMENSION).indexFieldName;
+			request.setSort(new Sort(new SortField(facetField, SortField.Type.STRING)));
+			assertThrows(IllegalStateException.class, () -> readToolbox.loadDocuments(request, new PojoReadResponse()));
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
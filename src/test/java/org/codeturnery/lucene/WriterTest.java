@@ -0,0 +1,547 @@
+package org.codeturnery.lucene;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.range.LongRange;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.codeturnery.lucene.access.BulkIngester;
+import org.codeturnery.lucene.access.CommitCoordinator;
+import org.codeturnery.lucene.access.DocValuesColumn;
+import org.codeturnery.lucene.access.FacetCountCache;
+import org.codeturnery.lucene.access.IndexManager;
+import org.codeturnery.lucene.access.IndexSearcherFactory;
+import org.codeturnery.lucene.access.ParallelIndexBuilder;
+import org.codeturnery.lucene.access.PojoReadRequest;
+import org.codeturnery.lucene.access.PojoReadResponse;
+import org.codeturnery.lucene.access.RangeFacet;
+import org.codeturnery.lucene.access.ReadExecuter;
+import org.codeturnery.lucene.access.ReadToolbox;
+import org.codeturnery.lucene.access.ResultCache;
+import org.codeturnery.lucene.access.WarmingSearcherFactory;
+import org.codeturnery.lucene.access.WriteExecuter;
+import org.codeturnery.lucene.access.WriteToolbox;
+import org.codeturnery.lucene.document.FieldFactory;
+import org.codeturnery.lucene.navigation.LazyFacetTree;
+import org.codeturnery.lucene.navigation.NavigationFetcher;
+import org.codeturnery.lucene.query.QueryFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class WriterTest {
+	@Test
+	void testReadYourWrites(@TempDir final Path directory) throws IOException {
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final Analyzer analyzer = analyzerSupplier.get();
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzer));
+			writeToolbox.initializeIndex();
+			// a high maximum staleness ensures the changes only get visible by waiting for them
+			indexManager.startNearRealTimeReopen(analyzer, 60, 0.01);
+			final ReadExecuter readExecuter = indexManager.getWriteBackedReaderExecuter(analyzer);
+
+			final List<Document> fixtures = TestIndex.getFixtures();
+			for (int i = 0; i < fixtures.size(); i++) {
+				final long generation = writeToolbox.accept(fixtures.get(i));
+				final Integer count = readExecuter.read(
+						(searcher, taxonomyReader, config) -> Integer.valueOf(searcher.count(new MatchAllDocsQuery())),
+						generation);
+				assertEquals(i + 1, count.intValue());
+			}
+		}
+	}
+
+	@Test
+	void testWarming(@TempDir final Path directory) throws IOException {
+		final var searcherFactory = new WarmingSearcherFactory(new IndexSearcherFactory(), TestIndex.getFacetsConfig(),
+				10, Duration.ofSeconds(10));
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final Analyzer analyzer = analyzerSupplier.get();
+			indexManager.setSearcherFactory(searcherFactory);
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzer));
+			final var readToolbox = new ReadToolbox(indexManager.getWriteBackedReaderExecuter(analyzer));
+			readToolbox.setQueryRecorder(searcherFactory);
+			readToolbox.loadFacets(new MatchAllDocsQuery());
+			readToolbox.loadCount(new MatchAllDocsQuery());
+			final long initialWarmingCount = searcherFactory.getWarmingCount();
+			final long initialTaxonomyWarmingCount = searcherFactory.getTaxonomyWarmingCount();
+			assertTrue(initialTaxonomyWarmingCount > 0);
+
+			writeToolbox.accept(TestIndex.getFixtures().get(0));
+			indexManager.maybeRefreshAll();
+
+			assertEquals(initialWarmingCount + 1, searcherFactory.getWarmingCount());
+			// the fixture added new categories, so a new taxonomy reader was opened
+			assertEquals(initialTaxonomyWarmingCount + 1, searcherFactory.getTaxonomyWarmingCount());
+			// both calls used the same query, the facet call is replayed
+			assertEquals(1, searcherFactory.getLastWarmedQueryCount());
+			assertTrue(searcherFactory.getLastWarmingDuration().toNanos() > 0);
+		}
+	}
+
+	@Test
+	void testBulkIngestion(@TempDir final Path directory) throws IOException {
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final Analyzer analyzer = analyzerSupplier.get();
+			final var writeExecuter = indexManager.getWriteExecuter(analyzer);
+			try (final var ingester = new BulkIngester(writeExecuter, 4, 8, 16);) {
+				for (int i = 0; i < 100; i++) {
+					for (final Document fixture : TestIndex.getFixtures()) {
+						ingester.accept(fixture);
+					}
+				}
+			}
+			new WriteToolbox(writeExecuter).commit();
+
+			final var readToolbox = new ReadToolbox(indexManager.getReadExecuter());
+			assertEquals(600, readToolbox.getDocumentCount());
+			assertEquals(300, readToolbox.getFacetResult(new MatchAllDocsQuery(), TestIndex.CATEGORY_DIMENSION, 1)
+					.orElseThrow().labelValues[0].value.intValue());
+		}
+	}
+
+	@Test
+	void testBulkIngesterConcurrentClose(@TempDir final Path directory) throws IOException, InterruptedException {
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final var writeExecuter = indexManager.getWriteExecuter(analyzerSupplier.get());
+			final var acceptedCount = new AtomicInteger();
+			final var producers = new ArrayList<Thread>();
+			try (final var ingester = new BulkIngester(writeExecuter, 2, 4, 3);) {
+				for (int i = 0; i < 4; i++) {
+					final var producer = new Thread(() -> {
+						try {
+							while (true) {
+								ingester.accept(TestIndex.getFixtures().get(0));
+								acceptedCount.incrementAndGet();
+							}
+						} catch (final IllegalStateException e) {
+							// closed
+						} catch (final IOException e) {
+							throw new RuntimeException(e);
+						}
+					});
+					producer.start();
+					producers.add(producer);
+				}
+				// let the producers fill the queue before closing concurrently to them
+				while (acceptedCount.get() < 100) {
+					Thread.onSpinWait();
+				}
+			}
+			for (final Thread producer : producers) {
+				producer.join();
+			}
+			new WriteToolbox(writeExecuter).commit();
+
+			// every document accepted before the close was indexed
+			assertEquals(acceptedCount.get(), new ReadToolbox(indexManager.getReadExecuter()).getDocumentCount());
+		}
+	}
+
+	@Test
+	void testBulkIngesterDeadWorker() {
+		// the only worker dies on its first batch and never drains the queue again
+		final var failingExecuter = new WriteExecuter() {
+			@Override
+			public <R> R write(final WriteFunction<R> function) {
+				throw new AssertionError("worker died");
+			}
+
+			@Override
+			public long writeSingleDocument(final SingleDocumentWriteFunction function) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		final var ingester = new BulkIngester(failingExecuter, 1, 1, 1);
+		assertThrows(IOException.class, () -> {
+			while (true) {
+				ingester.accept(TestIndex.getFixtures().get(0));
+			}
+		});
+		assertThrows(IOException.class, ingester::close);
+	}
+
+	@Test
+	void testUpsertAndDelete(@TempDir final Path directory) throws IOException {
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final Analyzer analyzer = analyzerSupplier.get();
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzer));
+			final var readExecuter = indexManager.getWriteBackedReaderExecuter(analyzer);
+			final var fieldFactory = new FieldFactory();
+			final List<Document> fixtures = TestIndex.getFixtures();
+			for (final Document fixture : fixtures) {
+				fixture.add(fieldFactory.createNumericDocValue("POPULARITY", 1));
+				writeToolbox.upsert(getIdTerm(fixture), fixture);
+			}
+			// writing the same documents again must not result in duplicates
+			for (final Document fixture : fixtures) {
+				writeToolbox.upsert(getIdTerm(fixture), fixture);
+			}
+			final Term carTerm = new Term(TestIndex.NAME_DIMENSION, "car");
+			final long updateGeneration = writeToolbox.updateNumericDocValue(carTerm, "POPULARITY", 42);
+			final Long popularity = readExecuter.read((searcher, taxonomyReader, config) -> {
+				final int docId = searcher.search(new TermQuery(carTerm), 1).scoreDocs[0].doc;
+				final var leaves = searcher.getIndexReader().leaves();
+				final var leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+				final NumericDocValues values = DocValues.getNumeric(leaf.reader(), "POPULARITY");
+				values.advanceExact(docId - leaf.docBase);
+				return Long.valueOf(values.longValue());
+			}, updateGeneration);
+			assertEquals(42, popularity.longValue());
+
+			writeToolbox.deleteById(carTerm, new Term(TestIndex.NAME_DIMENSION, "train"));
+			final long deleteGeneration = writeToolbox.deleteByQuery(
+					new TermQuery(new Term(TestIndex.COLOR_DIMENSION, "rainbow")));
+			final Integer count = readExecuter.read(
+					(searcher, taxonomyReader, config) -> Integer.valueOf(searcher.count(new MatchAllDocsQuery())),
+					deleteGeneration);
+			assertEquals(fixtures.size() - 3, count.intValue());
+		}
+	}
+
+	@Test
+	void testCommitCoordinatorError() throws IOException {
+		final var failingExecuter = new WriteExecuter() {
+			@Override
+			public <R> R write(final WriteFunction<R> function) {
+				throw new AssertionError("commit died");
+			}
+
+			@Override
+			public long writeSingleDocument(final SingleDocumentWriteFunction function) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		try (final var commitCoordinator = new CommitCoordinator(new WriteToolbox(failingExecuter), Duration.ZERO);) {
+			final CompletableFuture<long[]> failed = commitCoordinator.requestCommit();
+			assertThrows(CompletionException.class, failed::join);
+			// the committer thread is gone, hence later requests must not wait forever
+			assertThrows(CompletionException.class, commitCoordinator.requestCommit()::join);
+		}
+	}
+
+	@Test
+	void testGroupCommit(@TempDir final Path directory) throws IOException, InterruptedException {
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final WriteExecuter writeExecuter = indexManager.getWriteExecuter(analyzerSupplier.get());
+			final var writeToolbox = new WriteToolbox(writeExecuter);
+			// commits through this executer are held until the gate is opened
+			final var commitStarted = new CountDownLatch(1);
+			final var commitGate = new CountDownLatch(1);
+			final var gatedExecuter = new WriteExecuter() {
+				@Override
+				public <R> R write(final WriteFunction<R> function) throws IOException {
+					commitStarted.countDown();
+					try {
+						commitGate.await();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new ThreadInterruptedException(e);
+					}
+					return writeExecuter.write(function);
+				}
+
+				@Override
+				public long writeSingleDocument(final SingleDocumentWriteFunction function) throws IOException {
+					return writeExecuter.writeSingleDocument(function);
+				}
+			};
+			final var requests = new ArrayList<CompletableFuture<long[]>>();
+			try (final var commitCoordinator = new CommitCoordinator(new WriteToolbox(gatedExecuter), Duration.ZERO);) {
+				final List<Document> fixtures = TestIndex.getFixtures();
+				writeToolbox.accept(fixtures.get(0));
+				requests.add(commitCoordinator.requestCommit());
+				commitStarted.await();
+				// all further requests arrive while the first commit is running
+				for (final Document fixture : fixtures.subList(1, fixtures.size())) {
+					writeToolbox.accept(fixture);
+					requests.add(commitCoordinator.requestCommit());
+				}
+				commitGate.countDown();
+				CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+				assertEquals(requests.size(), commitCoordinator.getRequestCount());
+				commitCoordinator.close();
+				// the first request and the merged ones
+				assertEquals(2, commitCoordinator.getCommitCount());
+			}
+			assertEquals(6, new ReadToolbox(indexManager.getReadExecuter()).getDocumentCount());
+		}
+	}
+
+	@Test
+	void testParallelBuild(@TempDir final Path directory) throws IOException {
+		final List<Document> fixtures = TestIndex.getFixtures();
+		final var partitions = List.of(fixtures.subList(0, 2), fixtures.subList(2, 4), fixtures.subList(4, 6));
+		final var executor = Executors.newFixedThreadPool(partitions.size());
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final Analyzer analyzer = analyzerSupplier.get();
+			final var writeExecuter = indexManager.getWriteExecuter(analyzer);
+			final var builder = new ParallelIndexBuilder(directory.resolve("build"), analyzer,
+					TestIndex.getFacetsConfig(), executor);
+			assertEquals(6, builder.build(partitions, writeExecuter));
+			new WriteToolbox(writeExecuter).commit();
+
+			final var readToolbox = new ReadToolbox(indexManager.getReadExecuter());
+			assertEquals(6, readToolbox.getDocumentCount());
+			final var categories = readToolbox
+					.getFacetResult(new MatchAllDocsQuery(), TestIndex.CATEGORY_DIMENSION, 1).orElseThrow();
+			assertEquals("mobility", categories.labelValues[0].label);
+			assertEquals(3, categories.labelValues[0].value.intValue());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testDocValuesProjection(@TempDir final Path directory) throws IOException {
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzerSupplier.get()));
+			final var fieldFactory = new FieldFactory();
+			final List<Document> fixtures = TestIndex.getFixtures();
+			for (int i = 0; i < fixtures.size(); i++) {
+				final Document fixture = fixtures.get(i);
+				fixture.add(fieldFactory.createNumericDocValue("PRICE", i * 10));
+				fixture.add(fieldFactory.createBinaryDocValue("ID", new BytesRef(fixture.get(TestIndex.NAME_DIMENSION))));
+				writeToolbox.accept(fixture);
+			}
+			writeToolbox.commit();
+
+			final var request = new PojoReadRequest();
+			request.setQuery(new MatchAllDocsQuery());
+			request.setMaxHitCount(fixtures.size());
+			request.setMaxDocumentCount(fixtures.size());
+			request.setDocValuesFieldsToLoad(new LinkedHashSet<>(List.of("PRICE", "ID", "MISSING")));
+			final var response = new PojoReadResponse();
+			new ReadToolbox(indexManager.getReadExecuter()).loadDocuments(request, response);
+
+			// only doc values were requested, hence no stored fields are loaded
+			assertEquals(0, response.getDocuments().length);
+			final ScoreDoc[] hits = response.getHits().scoreDocs;
+			final DocValuesColumn prices = response.getColumns().get("PRICE");
+			final DocValuesColumn ids = response.getColumns().get("ID");
+			assertTrue(prices.isNumeric());
+			assertEquals(fixtures.size(), prices.size());
+			for (int i = 0; i < hits.length; i++) {
+				// documents were added in order into a single segment
+				assertEquals(hits[i].doc * 10L, prices.getLong(i));
+				assertEquals(fixtures.get(hits[i].doc).get(TestIndex.NAME_DIMENSION), ids.getBytes(i).utf8ToString());
+			}
+			assertFalse(response.getColumns().get("MISSING").hasValue(0));
+		}
+	}
+
+	@Test
+	void testIndexSort(@TempDir final Path directory) throws IOException {
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final var sort = new Sort(new SortField("PRICE", SortField.Type.LONG, true));
+			indexManager.setIndexSort(sort);
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzerSupplier.get()));
+			assertThrows(IllegalStateException.class, () -> indexManager.setIndexSort(sort));
+			final var fieldFactory = new FieldFactory();
+			final List<Document> fixtures = TestIndex.getFixtures();
+			for (int i = 0; i < fixtures.size(); i++) {
+				final Document fixture = fixtures.get(i);
+				fixture.add(fieldFactory.createNumericDocValue("PRICE", i * 10));
+				writeToolbox.accept(fixture);
+				if (i == fixtures.size() / 2) {
+					// create a second segment
+					writeToolbox.commit();
+				}
+			}
+			writeToolbox.commit();
+
+			final var readToolbox = new ReadToolbox(indexManager.getReadExecuter());
+			final var request = new PojoReadRequest();
+			request.setQuery(new MatchAllDocsQuery());
+			request.setSort(sort);
+			request.setMaxHitCount(2);
+			request.setMaxDocumentCount(2);
+			request.setDocValuesFieldsToLoad(Set.of("PRICE"));
+			final var firstPage = new PojoReadResponse();
+			readToolbox.loadDocuments(request, firstPage);
+			assertEquals(50L, firstPage.getColumns().get("PRICE").getLong(0));
+			assertEquals(40L, firstPage.getColumns().get("PRICE").getLong(1));
+
+			final ScoreDoc[] firstHits = firstPage.getHits().scoreDocs;
+			request.setStartDocument(firstHits[firstHits.length - 1]);
+			final var secondPage = new PojoReadResponse();
+			readToolbox.loadDocuments(request, secondPage);
+			assertEquals(30L, secondPage.getColumns().get("PRICE").getLong(0));
+			assertEquals(20L, secondPage.getColumns().get("PRICE").getLong(1));
+		}
+	}
+
+	@Test
+	void testResultCache(@TempDir final Path directory) throws IOException {
+		final var resultCache = new ResultCache(100);
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final Analyzer analyzer = analyzerSupplier.get();
+			indexManager.addRefreshListener(resultCache);
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzer));
+			final var readToolbox = new ReadToolbox(indexManager.getWriteBackedReaderExecuter(analyzer));
+			readToolbox.setResultCache(resultCache);
+			final List<Document> fixtures = TestIndex.getFixtures();
+			writeToolbox.accept(fixtures.get(0));
+			indexManager.maybeRefreshAll();
+
+			final var query = new TermQuery(new Term(TestIndex.COLOR_DIMENSION, "green"));
+			assertEquals(1, readToolbox.loadCount(query).intValue());
+			assertEquals(1, readToolbox.loadCount(query).intValue());
+			readToolbox.loadFacets(query);
+			readToolbox.loadFacets(query);
+			final var request = new PojoReadRequest();
+			request.setQuery(query);
+			request.setMaxHitCount(10);
+			request.setMaxDocumentCount(10);
+			final var response = new PojoReadResponse();
+			readToolbox.loadDocuments(request, new PojoReadResponse());
+			readToolbox.loadDocuments(request, response);
+			assertEquals(1, response.getDocuments().length);
+			assertEquals(3, resultCache.getHitCount());
+			assertEquals(3, resultCache.getMissCount());
+
+			// the refresh clears the cache, the new reader results in new keys anyway
+			writeToolbox.accept(fixtures.get(2));
+			indexManager.maybeRefreshAll();
+			assertEquals(0, resultCache.size());
+			assertEquals(2, readToolbox.loadCount(query).intValue());
+		}
+	}
+
+	@Test
+	void testFacetCountCache(@TempDir final Path directory) throws IOException {
+		final var facetCountCache = new FacetCountCache(100);
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final Analyzer analyzer = analyzerSupplier.get();
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzer));
+			final var readToolbox = new ReadToolbox(indexManager.getWriteBackedReaderExecuter(analyzer));
+			readToolbox.setFacetCountCache(facetCountCache);
+			final List<Document> fixtures = TestIndex.getFixtures();
+			for (final Document fixture : fixtures.subList(0, 3)) {
+				writeToolbox.accept(fixture);
+			}
+			indexManager.maybeRefreshAll();
+			assertEquals(2, readToolbox.loadFacets(new MatchAllDocsQuery())
+					.getSpecificValue(TestIndex.CATEGORY_DIMENSION, "mobility").intValue());
+			assertEquals(1, facetCountCache.getMissCount());
+
+			// the refresh adds a second segment, only that one is counted
+			for (final Document fixture : fixtures.subList(3, fixtures.size())) {
+				writeToolbox.accept(fixture);
+			}
+			indexManager.maybeRefreshAll();
+			final Facets facets = readToolbox.loadFacets(new MatchAllDocsQuery());
+			assertEquals(1, facetCountCache.getHitCount());
+			assertEquals(2, facetCountCache.getMissCount());
+			assertEquals(3, facets.getSpecificValue(TestIndex.CATEGORY_DIMENSION, "mobility").intValue());
+			final var categories = facets.getTopChildren(10, TestIndex.CATEGORY_DIMENSION);
+			assertEquals(6, categories.childCount);
+			assertEquals("mobility", categories.labelValues[0].label);
+		}
+	}
+
+	@Test
+	void testRangeFacets(@TempDir final Path directory) throws IOException {
+		try (final var analyzerSupplier = TestIndex.getAnalyzerSupplier();
+				final var indexManager = createIndexManager(directory);) {
+			final var writeToolbox = new WriteToolbox(indexManager.getWriteExecuter(analyzerSupplier.get()));
+			final var fieldFactory = new FieldFactory();
+			final List<Document> fixtures = TestIndex.getFixtures();
+			for (int i = 0; i < fixtures.size(); i++) {
+				final Document fixture = fixtures.get(i);
+				for (final IndexableField field : fieldFactory.createIndexedLong("PRICE", i * 10, true)) {
+					fixture.add(field);
+				}
+				writeToolbox.accept(fixture);
+			}
+			writeToolbox.commit();
+
+			final var readToolbox = new ReadToolbox(indexManager.getReadExecuter());
+			assertEquals(3, readToolbox.loadCount(LongPoint.newRangeQuery("PRICE", 10, 30)).intValue());
+			final RangeFacet histogram = RangeFacet.ofHistogram("PRICE", 0, 20, 3);
+			final Facets facets = readToolbox.loadFacets(new MatchAllDocsQuery(), List.of(histogram));
+			final FacetResult buckets = facets.getAllChildren("PRICE");
+			assertEquals(List.of("0", "20", "40"),
+					Arrays.stream(buckets.labelValues).map(labelValue -> labelValue.label).collect(Collectors.toList()));
+			for (final LabelAndValue bucket : buckets.labelValues) {
+				assertEquals(2, bucket.value.intValue());
+			}
+			assertEquals(3, facets.getSpecificValue(TestIndex.CATEGORY_DIMENSION, "mobility").intValue());
+
+			final var request = new PojoReadRequest();
+			request.setQuery(new MatchAllDocsQuery());
+			request.setMaxHitCount(1);
+			request.setRangeFacets(List.of(RangeFacet.ofRanges("PRICE", new LongRange("cheap", 0, true, 25, false))));
+			final var response = new PojoReadResponse();
+			readToolbox.loadDocumentsAndFacets(request, response);
+			assertEquals(3, response.getFacets().getAllChildren("PRICE").labelValues[0].value.intValue());
+
+			final var tree = new LazyFacetTree(MatchAllDocsQuery::new, new QueryFactory(),
+					TestIndex.getFacetsConfig(), TestIndex.USED_FIELDS_DIMENSION);
+			final var navigationFetcher = new NavigationFetcher(readToolbox, TestIndex.USED_FIELDS_DIMENSION);
+			final FacetResult itemBuckets = navigationFetcher
+					.getRangeFacet(tree.createRoot(TestIndex.CATEGORY_DIMENSION), histogram);
+			assertEquals(3, itemBuckets.labelValues.length);
+			assertThrows(IllegalArgumentException.class,
+					() -> readToolbox.loadRangeFacets(new MatchAllDocsQuery(), List.of(histogram, histogram)));
+
+			// the last range may end at the maximum long value, but not beyond it
+			final LongRange[] maxRanges = RangeFacet.ofHistogram("PRICE", Long.MAX_VALUE - 9, 5, 2).getRanges();
+			assertEquals(Long.MAX_VALUE, maxRanges[1].max);
+			assertThrows(ArithmeticException.class, () -> RangeFacet.ofHistogram("PRICE", Long.MAX_VALUE - 8, 5, 2));
+		}
+	}
+
+	private static Term getIdTerm(final Document document) {
+		return new Term(TestIndex.NAME_DIMENSION, document.get(TestIndex.NAME_DIMENSION));
+	}
+
+	private static IndexManager createIndexManager(final Path directory) throws IOException {
+		return new IndexManager(directory.resolve("index"), directory.resolve("taxonomy"),
+				TestIndex.getFacetsConfig());
+	}
+}